@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javalib.worldimages.Posn;
+
+// represents a benchmark of one hot path of the game, set up for a board size
+interface IBenchmark {
+  // EFFECT: runs one operation of this benchmark
+  // returns a value that depends on the work done, so it cannot be skipped
+  long run();
+}
+
+// represents a headless harness that times the hot paths of the game on seeded
+// boards of several sizes and on either board backend, without ever opening a
+// window. Run it as
+//   java -Djava.awt.headless=true Benchmarks [name] [maxSize] [packed|pieces]
+// where every argument is optional and narrows down what is run. The
+// parallelSolve benchmark times the ParallelSolver on the packed backend with
+// growing thread counts instead, next to the most speedup those threads could
+// give with the search after the bands left on one thread.
+class Benchmarks {
+  static final int[] SIZES = { 10, 100, 500, 1000, 2000 };
+  static final String[] NAMES = { "changePower", "parallelPower", "bitplanePower",
+      "checkGameWon", "onMouseClicked", "turnPowered", "applyBatch", "randomRotate",
+      "seededScramble", "solve", "draw", "makeScene" };
+  static final long WARMUP_NANOS = 500_000_000L;
+  static final long MEASURE_NANOS = 1_000_000_000L;
+  // the board sizes and thread counts the parallel solver is timed with
+  static final int[] SOLVE_SIZES = { 500, 1000, 2000 };
+  static final int[] PARALLELISMS = { 1, 2, 4, 8, 16 };
+
+  String name;
+  int maxSize;
+  String backend;
+  long sink;
+
+  // the constructor
+  Benchmarks(String name, int maxSize, String backend) {
+    this.name = name;
+    this.maxSize = maxSize;
+    this.backend = backend;
+    this.sink = 0;
+  }
+
+  // runs the benchmarks picked out by the given arguments
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    Benchmarks benchmarks = new Benchmarks(args.length > 0 ? args[0] : "",
+        args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE,
+        args.length > 2 ? args[2] : "");
+    benchmarks.runAll();
+  }
+
+  // EFFECT: runs every selected benchmark and prints a line for each
+  void runAll() {
+    System.out.printf("%-16s %8s %8s %14s %12s%n", "benchmark", "size", "backend", "ns/op",
+        "ops");
+
+    for (String benchmark : NAMES) {
+      if (!benchmark.startsWith(this.name)) {
+        continue;
+      }
+      for (int size : SIZES) {
+        if (size > this.maxSize) {
+          continue;
+        }
+        for (String backend : new String[] { "packed", "pieces" }) {
+          if (backend.startsWith(this.backend)) {
+            this.report(benchmark, size, backend, this.setUp(benchmark, size, backend));
+          }
+        }
+      }
+    }
+    if ("parallelSolve".startsWith(this.name) && "packed".startsWith(this.backend)) {
+      this.solveAll();
+    }
+    System.out.println("sink " + this.sink);
+  }
+
+  // EFFECT: solves a scrambled board of every size with every number of
+  // threads, printing the time, the speedup over one thread, the most speedup
+  // the threads could give if only the bands sped up, and how the time splits
+  // between the bands and the search after them
+  void solveAll() {
+    System.out.printf("%n%-16s %8s %8s %10s %8s %8s %10s %10s %7s  (%d cpus)%n", "benchmark",
+        "size", "threads", "ms", "speedup", "at most", "bands ms", "after ms", "rounds",
+        Runtime.getRuntime().availableProcessors());
+
+    for (int size : SOLVE_SIZES) {
+      if (size > this.maxSize) {
+        continue;
+      }
+      // a solve that is thrown away, to warm up the code
+      this.sink += new ParallelSolver(board(size, "packed", true)).solve().length;
+
+      double single = 0;
+      double singleBands = 0;
+      for (int threads : PARALLELISMS) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ParallelSolver solver = new ParallelSolver(board(size, "packed", true), pool,
+            ParallelSolver.BAND_ROWS);
+        long start = System.nanoTime();
+        int[] turns = solver.solve();
+        double millis = (System.nanoTime() - start) / 1e6;
+        pool.shutdown();
+
+        this.sink += turns == null ? -1 : turns[turns.length / 2];
+        if (threads == 1) {
+          single = millis;
+          singleBands = solver.parallelNanos / 1e6;
+        }
+        // Amdahl's law, from how one thread split its time
+        double bound = single / (single - singleBands + singleBands / threads);
+        System.out.printf("%-16s %8d %8d %10.0f %8.2f %8.2f %10.0f %10.0f %7d%n", "parallelSolve",
+            size, threads, millis, single / millis, bound, solver.parallelNanos / 1e6,
+            solver.sequentialNanos / 1e6, solver.rounds);
+      }
+    }
+  }
+
+  // a board with the given backend holding a seeded spanning tree of the given
+  // size, scrambled or not
+  static Board board(int size, String backend, boolean scrambled) {
+    Random rand = new Random(size);
+    Board board = new Board(size, size, rand);
+
+    if (scrambled) {
+      board.randomRotate(rand);
+    }
+    if (backend.equals("pieces")) {
+      board = pieces(board);
+    }
+    return board;
+  }
+
+  // a board built from GamePieces with the same cells as the given board
+  static Board pieces(Board board) {
+    ArrayList<ArrayList<GamePiece>> pieces = new ArrayList<>();
+
+    for (int row = 0; row < board.cells.rows(); row++) {
+      ArrayList<GamePiece> current = new ArrayList<>();
+      for (int col = 0; col < board.cells.cols(); col++) {
+        current.add(board.cells.pieceAt(row, col));
+      }
+      pieces.add(current);
+    }
+
+    Board result = new Board(board.rows, board.cols, pieces);
+    result.powerRow = board.powerRow;
+    result.powerCol = board.powerCol;
+    return result;
+  }
+
+  // a game over the given board
+  static LightEmAll game(Board board) {
+    return new LightEmAll(board.cells.cols(), board.cells.rows(), board);
+  }
+
+  // the named benchmark set up on a board of the given size and backend
+  IBenchmark setUp(String benchmark, int size, String backend) {
+    Random rand = new Random(size * 31 + 7);
+
+    if (benchmark.equals("changePower")) {
+      // an unscrambled tree is fully powered, the worst case for a recompute
+      LightEmAll game = game(board(size, backend, false));
+      return () -> {
+        game.changePower();
+        return game.engine.poweredCount;
+      };
+    }
+    else if (benchmark.equals("parallelPower")) {
+      // the same full recompute, labelling strips of the board on every core
+      GameEngine engine = new ParallelPowerEngine(board(size, backend, false));
+      return () -> {
+        engine.changePower();
+        return engine.poweredCount;
+      };
+    }
+    else if (benchmark.equals("bitplanePower")) {
+      // the same full recompute, 64 cells at a time
+      GameEngine engine = new BitplaneEngine(board(size, backend, false));
+      return () -> {
+        engine.changePower();
+        return engine.poweredCount;
+      };
+    }
+    else if (benchmark.equals("checkGameWon")) {
+      LightEmAll game = game(board(size, backend, true));
+      game.changePower();
+      return () -> {
+        game.checkGameWon();
+        return game.won ? 1 : 0;
+      };
+    }
+    else if (benchmark.equals("onMouseClicked")) {
+      LightEmAll game = game(board(size, backend, true));
+      game.changePower();
+      return () -> {
+        game.onMouseClicked(new Posn(rand.nextInt(game.viewCols * 39),
+            rand.nextInt(game.viewRows * 39)), "LeftButton");
+        return game.engine.poweredCount;
+      };
+    }
+    else if (benchmark.equals("turnPowered")) {
+      // a piece of a fully powered board turned out of place and back, which
+      // cuts off and powers again the part of the tree behind it
+      LightEmAll game = game(board(size, backend, false));
+      game.changePower();
+      return () -> {
+        int row = rand.nextInt(size);
+        int col = rand.nextInt(size);
+        game.engine.turnPiece(row, col, 1);
+        game.engine.turnPiece(row, col, 3);
+        return game.engine.poweredCount;
+      };
+    }
+    else if (benchmark.equals("applyBatch")) {
+      LightEmAll game = game(board(size, backend, true));
+      MoveBatch batch = new MoveBatch();
+      return () -> {
+        // a burst of clicks, as automation sends them
+        batch.clear();
+        for (int i = 0; i < 500; i++) {
+          batch.rotate(rand.nextInt(size), rand.nextInt(size));
+        }
+        return game.applyBatch(batch).length;
+      };
+    }
+    else if (benchmark.equals("randomRotate")) {
+      Board board = board(size, backend, false);
+      return () -> {
+        board.randomRotate(rand);
+        return board.cells.connectors(0, 0);
+      };
+    }
+    else if (benchmark.equals("seededScramble")) {
+      Board board = board(size, backend, false);
+      return () -> {
+        board.randomRotate(rand.nextLong(), ForkJoinPool.commonPool());
+        return board.cells.connectors(0, 0);
+      };
+    }
+    else if (benchmark.equals("solve")) {
+      // a whole solve of a scrambled board, which only reads the board
+      Board board = board(size, backend, true);
+      return () -> {
+        int[] turns = new Solver(board).solve();
+        return turns == null ? -1 : turns[turns.length / 2];
+      };
+    }
+    else if (benchmark.equals("draw")) {
+      Board board = board(size, backend, true);
+      return () -> {
+        GamePiece piece = board.cells.pieceAt(rand.nextInt(size), rand.nextInt(size));
+        return piece.draw().hashCode();
+      };
+    }
+    else {
+      LightEmAll game = game(board(size, backend, true));
+      game.changePower();
+      return () -> {
+        // a click between frames, as in play
+        game.onMouseClicked(new Posn(rand.nextInt(game.viewCols * 39),
+            rand.nextInt(game.viewRows * 39)), "LeftButton");
+        return game.makeScene().hashCode();
+      };
+    }
+  }
+
+  // EFFECT: warms up and then times the given benchmark, printing the result
+  void report(String benchmark, int size, String backend, IBenchmark run) {
+    long end = System.nanoTime() + WARMUP_NANOS;
+    while (System.nanoTime() < end) {
+      this.sink += run.run();
+    }
+
+    long ops = 0;
+    long start = System.nanoTime();
+    long now = start;
+    while (now - start < MEASURE_NANOS) {
+      this.sink += run.run();
+      ops++;
+      now = System.nanoTime();
+    }
+    System.out.printf("%-16s %8d %8s %14.1f %12d%n", benchmark, size, backend,
+        (double) (now - start) / ops, ops);
+  }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+
+// represents a GameEngine that recomputes the powered region 64 cells at a time
+//
+// The connectors of every row are kept as bitplanes, one long[] per direction
+// with a bit per cell, and so are the powered cells. Power spreads along a
+// word of a row with shifts and masks, over to the next word through its end
+// cells, and between rows by and-ing a word's power with the connections to
+// the word above or below. A word is spread again whenever a word next to it
+// gains power, until none does. Rotations and moves of the power station between full recomputes
+// are handled as in a GameEngine.
+class BitplaneEngine extends GameEngine {
+  int rows;
+  int cols;
+  // the number of longs in each row of a plane
+  int words;
+  // the cells with a connector on each side, row after row
+  long[] top;
+  long[] right;
+  long[] bottom;
+  long[] left;
+  // the cells that the power has reached so far
+  long[] power;
+  // the word holding the power station
+  int station;
+  // the words to spread power in again, and which of them are waiting
+  IntQueue wordQueue;
+  boolean[] queued;
+
+  // the constructor
+  BitplaneEngine(Board board) {
+    super(board);
+    this.rows = 0;
+    this.cols = 0;
+    this.words = 0;
+    this.station = 0;
+    this.wordQueue = new IntQueue(16);
+  }
+
+  // the given cells with every cell powered that is joined to one of them by
+  // a run of links going right, within a single word; bit i of links means
+  // cell i is joined to cell i + 1
+  static long spreadRight(long cells, long links) {
+    for (int distance = 1; distance < 64; distance <<= 1) {
+      cells |= (cells & links) << distance;
+      links &= links >>> distance;
+    }
+    return cells;
+  }
+
+  // the given cells with every cell powered that is joined to one of them by
+  // a run of links going left, within a single word; bit i of links means
+  // cell i is joined to cell i + 1
+  static long spreadLeft(long cells, long links) {
+    for (int distance = 1; distance < 64; distance <<= 1) {
+      cells |= (cells >>> distance) & links;
+      links &= links >>> distance;
+    }
+    return cells;
+  }
+
+  // EFFECT: changes the power connections between GamePieces, spreading power
+  // over the bitplanes of the board
+  void changePower() {
+    long start = Metrics.start();
+    IGrid cells = this.board.cells;
+    this.build();
+
+    this.station = this.powerRow * this.words + (this.powerCol >> 6);
+    this.queue(this.station);
+    while (!this.wordQueue.isEmpty()) {
+      int word = this.wordQueue.remove();
+      this.queued[word] = false;
+      this.spread(word);
+    }
+
+    cells.clearPowered();
+    this.changed.addAll();
+    this.poweredCount = 0;
+    for (int row = 0; row < this.rows; row++) {
+      for (int word = 0; word < this.words; word++) {
+        long bits = this.power[row * this.words + word];
+
+        while (bits != 0) {
+          int col = (word << 6) + Long.numberOfTrailingZeros(bits);
+          cells.setPowered(row, col, true);
+          this.addPowered(row * this.cols + col, 0);
+          bits &= bits - 1;
+        }
+      }
+    }
+    this.powerKnown = true;
+    // the planes do not say which cell powered which
+    this.treeKnown = false;
+    Metrics.CELLS_VISITED.add(this.poweredCount);
+    Metrics.CHANGE_POWER.stop(start);
+  }
+
+  // EFFECT: fills the connector planes from the board and clears the power
+  void build() {
+    IGrid cells = this.board.cells;
+
+    if (this.rows != cells.rows() || this.cols != cells.cols()) {
+      this.rows = cells.rows();
+      this.cols = cells.cols();
+      this.words = (this.cols + 63) >> 6;
+      int size = this.rows * this.words;
+      this.top = new long[size];
+      this.right = new long[size];
+      this.bottom = new long[size];
+      this.left = new long[size];
+      this.power = new long[size];
+      this.queued = new boolean[size];
+    }
+    else {
+      Arrays.fill(this.power, 0);
+    }
+
+    for (int row = 0; row < this.rows; row++) {
+      for (int word = 0; word < this.words; word++) {
+        long top = 0;
+        long right = 0;
+        long bottom = 0;
+        long left = 0;
+
+        for (int col = word << 6; col < Math.min(this.cols, (word + 1) << 6); col++) {
+          long mask = cells.connectors(row, col);
+          top |= (mask & 1) << col;
+          right |= (mask >> 1 & 1) << col;
+          bottom |= (mask >> 2 & 1) << col;
+          left |= (mask >> 3 & 1) << col;
+        }
+
+        int i = row * this.words + word;
+        this.top[i] = top;
+        this.right[i] = right;
+        this.bottom[i] = bottom;
+        this.left[i] = left;
+      }
+    }
+  }
+
+  // EFFECT: adds the given word to the words to spread, unless it is waiting
+  void queue(int word) {
+    if (!this.queued[word]) {
+      this.queued[word] = true;
+      this.wordQueue.add(word);
+    }
+  }
+
+  // EFFECT: powers the cells of the given word that connect to a powered cell
+  // above, below or in the words on either side, and every cell along the
+  // word joined to a powered one, queueing the words next to any that gained
+  // power
+  void spread(int word) {
+    int row = word / this.words;
+    int col = word % this.words;
+    long links = this.links(word, col);
+    long cells = this.power[word];
+
+    if (word == this.station) {
+      cells |= 1L << this.powerCol;
+    }
+    if (row > 0) {
+      cells |= this.power[word - this.words] & this.bottom[word - this.words] & this.top[word];
+    }
+    if (row < this.rows - 1) {
+      cells |= this.power[word + this.words] & this.top[word + this.words] & this.bottom[word];
+    }
+    if (col > 0) {
+      cells |= (this.power[word - 1] & this.links(word - 1, col - 1)) >>> 63;
+    }
+    if (col < this.words - 1) {
+      cells |= (this.power[word + 1] << 63) & links;
+    }
+    cells = spreadLeft(spreadRight(cells, links), links);
+
+    long gained = cells & ~this.power[word];
+    if (gained == 0) {
+      return;
+    }
+    this.power[word] = cells;
+    if (row > 0 && (gained & this.top[word]) != 0) {
+      this.queue(word - this.words);
+    }
+    if (row < this.rows - 1 && (gained & this.bottom[word]) != 0) {
+      this.queue(word + this.words);
+    }
+    if (col > 0 && (gained & 1L) != 0) {
+      this.queue(word - 1);
+    }
+    if (col < this.words - 1 && gained < 0) {
+      this.queue(word + 1);
+    }
+  }
+
+  // the links between the cells of the given word, the given one of its row,
+  // where bit i means the cell there connects to the next one
+  long links(int word, int col) {
+    long lefts = this.left[word] >>> 1;
+
+    if (col < this.words - 1) {
+      lefts |= this.left[word + 1] << 63;
+    }
+    return this.right[word] & lefts;
+  }
+}
@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// represents the base of the game
+class Board {
+  int rows;
+  int cols;
+  int powerRow;
+  int powerCol;
+  // the GamePieces of a board built from a list, or null when the cells are packed
+  ArrayList<ArrayList<GamePiece>> board;
+  IGrid cells;
+
+  // the constructor
+  Board(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.powerRow = rows / 2;
+    this.powerCol = cols / 2;
+    this.board = null;
+    this.cells = new PackedGrid(rows, cols);
+
+    for (int row = 0; row < this.rows; row++) {
+      for (int col = 0; col < this.cols; col++) {
+        if (row == this.powerRow) {
+          this.cells.setConnectors(row, col, IGrid.LEFT | IGrid.RIGHT | IGrid.TOP | IGrid.BOTTOM);
+        }
+        else {
+          this.cells.setConnectors(row, col, IGrid.LEFT | IGrid.RIGHT);
+        }
+      }
+    }
+
+    this.cells.setPowerStation(this.powerRow, this.powerCol, true);
+  }
+
+  // the constructor for a random spanning tree of wires, built with Kruskal's
+  // algorithm over the edges between neighboring cells in a shuffled order
+  Board(int rows, int cols, Random rand) {
+    this.rows = rows;
+    this.cols = cols;
+    this.powerRow = rows / 2;
+    this.powerCol = cols / 2;
+    this.board = null;
+    PackedGrid grid = new PackedGrid(rows, cols);
+    this.cells = grid;
+
+    // edge 2 * i joins cell i to its right, edge 2 * i + 1 joins it to below
+    int[] edges = new int[rows * (cols - 1) + (rows - 1) * cols];
+    int count = 0;
+
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        int cell = row * cols + col;
+
+        if (col < cols - 1) {
+          edges[count++] = 2 * cell;
+        }
+        if (row < rows - 1) {
+          edges[count++] = 2 * cell + 1;
+        }
+      }
+    }
+
+    for (int i = count - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = edges[i];
+      edges[i] = edges[j];
+      edges[j] = temp;
+    }
+
+    DisjointSet sets = new DisjointSet(rows * cols);
+    int joined = 0;
+
+    for (int i = 0; i < count && joined < rows * cols - 1; i++) {
+      int cell = edges[i] >> 1;
+      boolean down = (edges[i] & 1) != 0;
+      int other = down ? cell + cols : cell + 1;
+
+      if (sets.union(cell, other)) {
+        grid.cells[cell] |= down ? IGrid.BOTTOM : IGrid.RIGHT;
+        grid.cells[other] |= down ? IGrid.TOP : IGrid.LEFT;
+        joined++;
+      }
+    }
+
+    this.cells.setPowerStation(this.powerRow, this.powerCol, true);
+  }
+
+  // the constructor for a board over the given grid
+  Board(int rows, int cols, IGrid cells) {
+    this.rows = rows;
+    this.cols = cols;
+    this.powerRow = 0;
+    this.powerCol = 0;
+    this.board = null;
+    this.cells = cells;
+  }
+
+  // the constructor for testing
+  Board(int rows, int cols, ArrayList<ArrayList<GamePiece>> board) {
+    this.rows = rows;
+    this.cols = cols;
+    this.powerRow = 0;
+    this.powerCol = 0;
+    this.board = board;
+    this.cells = new PieceGrid(board);
+  }
+
+  // EFFECT: rotates this GamePiece a random amount
+  void randomRotate(Random seed) {
+    int rows = this.cells.rows();
+    int cols = this.cells.cols();
+
+    if (this.cells instanceof PackedGrid) {
+      ((PackedGrid) this.cells).scramble(seed);
+      return;
+    }
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        int rotations = seed.nextInt(4);
+
+        if (rotations != 0) {
+          this.cells.setConnectors(row, col,
+              PackedGrid.turn(this.cells.connectors(row, col), rotations));
+        }
+      }
+    }
+  }
+
+  // EFFECT: rotates every cell a random number of times decided by hashing
+  // the given seed with the cell's index, on the given pool for a packed
+  // board; a seed scrambles a board the same way whatever the pool, but not
+  // the same way as a Random with that seed does
+  void randomRotate(long seed, ForkJoinPool pool) {
+    int rows = this.cells.rows();
+    int cols = this.cells.cols();
+
+    if (this.cells instanceof PackedGrid) {
+      pool.invoke(new ScrambleBands((PackedGrid) this.cells, seed, 0, rows));
+      return;
+    }
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        int rotations = PackedGrid.turnsAt(seed, (long) row * cols + col);
+
+        if (rotations != 0) {
+          this.cells.setConnectors(row, col,
+              PackedGrid.turn(this.cells.connectors(row, col), rotations));
+        }
+      }
+    }
+  }
+}
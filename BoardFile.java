@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// represents the binary format of a saved board: a header of the magic number,
+// the format version, rows, columns, the power station's row and column and
+// the seed, followed by the connectors of every cell in row-major order, two
+// cells to a byte with the first cell in the low four bits
+class BoardFile {
+  static final int MAGIC = 0x4C454D41;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+
+  // EFFECT: writes the header of a board with the given size, power station
+  // and seed to the given stream
+  static void writeHeader(DataOutputStream out, int rows, int cols, int powerRow, int powerCol,
+      long seed) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(rows);
+    out.writeInt(cols);
+    out.writeInt(powerRow);
+    out.writeInt(powerCol);
+    out.writeLong(seed);
+  }
+
+  // the number of bytes of cells in a board with the given size
+  static long cellBytes(int rows, int cols) {
+    return ((long) rows * cols + 1) / 2;
+  }
+
+  // EFFECT: writes the given board and the seed it was made from to the file at
+  // the given path
+  static void write(Board board, long seed, String path) throws IOException {
+    try (OutputStream out = new FileOutputStream(path)) {
+      write(board, seed, out);
+    }
+  }
+
+  // EFFECT: writes the given board and the seed it was made from to the given
+  // stream
+  static void write(Board board, long seed, OutputStream stream) throws IOException {
+    IGrid cells = board.cells;
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    writeHeader(out, cells.rows(), cells.cols(), board.powerRow, board.powerCol, seed);
+
+    int pending = -1;
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        if (pending < 0) {
+          pending = cells.connectors(row, col);
+        }
+        else {
+          out.writeByte(pending | (cells.connectors(row, col) << 4));
+          pending = -1;
+        }
+      }
+    }
+    if (pending >= 0) {
+      out.writeByte(pending);
+    }
+    out.flush();
+  }
+
+  // a Board over the file at the given path, mapped into memory so that only
+  // the parts of it that are used are read; a GameEngine numbers the cells
+  // with ints, so the board can have at most Integer.MAX_VALUE cells, a file
+  // of about 1 GB
+  static Board map(String path) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+      if (file.length() < HEADER_SIZE || file.readInt() != MAGIC || file.readInt() != VERSION) {
+        throw new IOException("Not a board file");
+      }
+      int rows = file.readInt();
+      int cols = file.readInt();
+      int powerRow = file.readInt();
+      int powerCol = file.readInt();
+
+      if ((long) rows * cols > Integer.MAX_VALUE) {
+        throw new IOException("Board file has more cells than can be played");
+      }
+      if (file.length() < HEADER_SIZE + cellBytes(rows, cols)) {
+        throw new IOException("Board file is truncated");
+      }
+
+      Board board = new Board(rows, cols, new MappedGrid(file.getChannel(), rows, cols));
+      board.powerRow = powerRow;
+      board.powerCol = powerCol;
+      board.cells.setPowerStation(powerRow, powerCol, true);
+      return board;
+    }
+  }
+
+  // a Board read whole from the given stream, with the power station marked
+  static Board read(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("Not a board file");
+    }
+    int rows = in.readInt();
+    int cols = in.readInt();
+    int powerRow = in.readInt();
+    int powerCol = in.readInt();
+    in.readLong();
+
+    PackedGrid grid = new PackedGrid(rows, cols);
+    for (int i = 0; i < grid.cells.length; i += 2) {
+      int pair = in.readUnsignedByte();
+      grid.cells[i] = (byte) (pair & IGrid.CONNECTORS);
+
+      if (i + 1 < grid.cells.length) {
+        grid.cells[i + 1] = (byte) (pair >> 4);
+      }
+    }
+
+    Board board = new Board(rows, cols, grid);
+    board.powerRow = powerRow;
+    board.powerCol = powerCol;
+    grid.setPowerStation(powerRow, powerCol, true);
+    return board;
+  }
+}
+
+// represents a grid over a read-only memory-mapped board file; connectors are
+// read from the mapping when first used, a page of it is copied to the heap the
+// first time one of its cells is rotated, and the power flags live in pages of
+// bits that are only allocated once a cell in them is powered
+class MappedGrid implements IGrid {
+  static final int SEGMENT_BITS = 30;
+  static final int COPY_BITS = 12;
+  static final int PAGE_BITS = 16;
+
+  int rows;
+  int cols;
+  MappedByteBuffer[] segments;
+  byte[][] copies;
+  long[][] powered;
+  int stationRow;
+  int stationCol;
+
+  // the constructor, mapping the cells that follow the header of the given file
+  MappedGrid(FileChannel channel, int rows, int cols) throws IOException {
+    this.rows = rows;
+    this.cols = cols;
+
+    long bytes = BoardFile.cellBytes(rows, cols);
+    int count = (int) ((bytes + (1L << SEGMENT_BITS) - 1) >> SEGMENT_BITS);
+    this.segments = new MappedByteBuffer[count];
+
+    for (int i = 0; i < count; i++) {
+      long start = (long) i << SEGMENT_BITS;
+      long size = Math.min(1L << SEGMENT_BITS, bytes - start);
+      this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, BoardFile.HEADER_SIZE + start,
+          size);
+    }
+    this.copies = new byte[(int) ((bytes + (1L << COPY_BITS) - 1) >> COPY_BITS)][];
+
+    long cells = (long) rows * cols;
+    this.powered = new long[(int) ((cells + (1L << PAGE_BITS) - 1) >> PAGE_BITS)][];
+    this.stationRow = -1;
+    this.stationCol = -1;
+  }
+
+  // the index of the cell at the given position
+  long index(int row, int col) {
+    return (long) row * this.cols + col;
+  }
+
+  // the byte holding the cell with the given index
+  int pair(long cell) {
+    long offset = cell >> 1;
+    byte[] copy = this.copies[(int) (offset >> COPY_BITS)];
+
+    if (copy != null) {
+      return copy[(int) (offset & ((1 << COPY_BITS) - 1))] & 0xFF;
+    }
+    return this.segments[(int) (offset >> SEGMENT_BITS)]
+        .get((int) (offset & ((1L << SEGMENT_BITS) - 1))) & 0xFF;
+  }
+
+  // the heap copy of the page of bytes holding the given byte offset, copying
+  // the page from the mapping the first time
+  byte[] copyOf(long offset) {
+    int page = (int) (offset >> COPY_BITS);
+
+    if (this.copies[page] == null) {
+      long start = (long) page << COPY_BITS;
+      byte[] copy = new byte[(int) Math.min(1 << COPY_BITS,
+          BoardFile.cellBytes(this.rows, this.cols) - start)];
+
+      for (int i = 0; i < copy.length; i++) {
+        long at = start + i;
+        copy[i] = this.segments[(int) (at >> SEGMENT_BITS)]
+            .get((int) (at & ((1L << SEGMENT_BITS) - 1)));
+      }
+      this.copies[page] = copy;
+    }
+    return this.copies[page];
+  }
+
+  public int rows() {
+    return this.rows;
+  }
+
+  public int cols() {
+    return this.cols;
+  }
+
+  public int connectors(int row, int col) {
+    long cell = this.index(row, col);
+    return (this.pair(cell) >> ((cell & 1) << 2)) & CONNECTORS;
+  }
+
+  public void setConnectors(int row, int col, int mask) {
+    long cell = this.index(row, col);
+    long offset = cell >> 1;
+    int shift = (int) (cell & 1) << 2;
+    int pair = (this.pair(cell) & ~(CONNECTORS << shift)) | ((mask & CONNECTORS) << shift);
+    this.copyOf(offset)[(int) (offset & ((1 << COPY_BITS) - 1))] = (byte) pair;
+  }
+
+  public int state(int row, int col) {
+    return this.connectors(row, col) | (this.isPowerStation(row, col) ? STATION : 0)
+        | (this.isPowered(row, col) ? POWERED : 0);
+  }
+
+  public boolean isPowered(int row, int col) {
+    long cell = this.index(row, col);
+    long[] page = this.powered[(int) (cell >> PAGE_BITS)];
+    int bit = (int) (cell & ((1 << PAGE_BITS) - 1));
+    return page != null && (page[bit >> 6] & (1L << bit)) != 0;
+  }
+
+  public void setPowered(int row, int col, boolean powered) {
+    long cell = this.index(row, col);
+    int bit = (int) (cell & ((1 << PAGE_BITS) - 1));
+    long[] page = this.powered[(int) (cell >> PAGE_BITS)];
+
+    if (page == null) {
+      if (!powered) {
+        return;
+      }
+      page = new long[1 << (PAGE_BITS - 6)];
+      this.powered[(int) (cell >> PAGE_BITS)] = page;
+    }
+    if (powered) {
+      page[bit >> 6] |= 1L << bit;
+    }
+    else {
+      page[bit >> 6] &= ~(1L << bit);
+    }
+  }
+
+  public boolean isPowerStation(int row, int col) {
+    return row == this.stationRow && col == this.stationCol;
+  }
+
+  // a board has one power station, so setting a new one clears the old one
+  public void setPowerStation(int row, int col, boolean powerStation) {
+    if (powerStation) {
+      this.stationRow = row;
+      this.stationCol = col;
+    }
+    else if (this.isPowerStation(row, col)) {
+      this.stationRow = -1;
+      this.stationCol = -1;
+    }
+  }
+
+  public void rotate(int row, int col) {
+    this.setConnectors(row, col, PackedGrid.rotateMask(this.connectors(row, col)));
+  }
+
+  public void clearPowered() {
+    Arrays.fill(this.powered, null);
+  }
+
+  // the powered flags of 64 cells share a word, and a page of them is
+  // allocated when first needed
+  public boolean independentCells() {
+    return false;
+  }
+
+  public long countPowered() {
+    long count = 0;
+
+    for (long[] page : this.powered) {
+      if (page != null) {
+        for (long word : page) {
+          count += Long.bitCount(word);
+        }
+      }
+    }
+    return count;
+  }
+
+  // a new GamePiece copied from the cell at the given position; changes to it
+  // are not written back to this grid
+  public GamePiece pieceAt(int row, int col) {
+    GamePiece piece = new GamePiece(row, col);
+    piece.setConnectors(this.connectors(row, col));
+    piece.powerStation = this.isPowerStation(row, col);
+    piece.powered = this.isPowered(row, col);
+    return piece;
+  }
+}
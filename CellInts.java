@@ -0,0 +1,38 @@
+import java.util.Arrays;
+
+// represents an int for every cell index, kept in pages that are only
+// allocated once one of their cells is given a value, so that a board mapped
+// from a file only pays for the parts of it that are used
+class CellInts {
+  static final int PAGE_BITS = 16;
+
+  int[][] pages;
+
+  // the constructor
+  CellInts() {
+    this.pages = new int[0][];
+  }
+
+  // the int of the cell with the given index, or 0 if it was never given one
+  int get(int cell) {
+    int page = cell >> PAGE_BITS;
+
+    if (page >= this.pages.length || this.pages[page] == null) {
+      return 0;
+    }
+    return this.pages[page][cell & ((1 << PAGE_BITS) - 1)];
+  }
+
+  // EFFECT: gives the cell with the given index the given int
+  void set(int cell, int value) {
+    int page = cell >> PAGE_BITS;
+
+    if (page >= this.pages.length) {
+      this.pages = Arrays.copyOf(this.pages, Math.max(page + 1, this.pages.length * 2));
+    }
+    if (this.pages[page] == null) {
+      this.pages[page] = new int[1 << PAGE_BITS];
+    }
+    this.pages[page][cell & ((1 << PAGE_BITS) - 1)] = value;
+  }
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+
+// represents a set of cell indices that remembers the order they were added
+// in, or that stands for every cell at once
+class CellSet {
+  int[] items;
+  int size;
+  long[] marks;
+  boolean all;
+
+  // the constructor
+  CellSet() {
+    this.items = new int[16];
+    this.size = 0;
+    this.marks = new long[0];
+    this.all = false;
+  }
+
+  // does this set hold no cells?
+  boolean isEmpty() {
+    return !this.all && this.size == 0;
+  }
+
+  // does this set hold the cell with the given index?
+  boolean contains(int cell) {
+    return this.all || (cell >> 6) < this.marks.length
+        && (this.marks[cell >> 6] & (1L << cell)) != 0;
+  }
+
+  // EFFECT: adds the cell with the given index to this set
+  void add(int cell) {
+    if (this.all || this.contains(cell)) {
+      return;
+    }
+    if ((cell >> 6) >= this.marks.length) {
+      this.marks = Arrays.copyOf(this.marks, Math.max((cell >> 6) + 1, this.marks.length * 2));
+    }
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+    }
+    this.marks[cell >> 6] |= 1L << cell;
+    this.items[this.size++] = cell;
+  }
+
+  // EFFECT: makes this set stand for every cell
+  void addAll() {
+    this.clear();
+    this.all = true;
+  }
+
+  // EFFECT: removes every cell from this set
+  void clear() {
+    for (int i = 0; i < this.size; i++) {
+      this.marks[this.items[i] >> 6] = 0;
+    }
+    this.size = 0;
+    this.all = false;
+  }
+}
@@ -0,0 +1,18 @@
+// represents the connectors of a whole board and its power station as they
+// were after a number of steps of an UndoHistory, in chunks of
+// UndoHistory.CHUNK_CELLS cells; a chunk that did not change since the last
+// checkpoint is the same array as that checkpoint's
+class Checkpoint {
+  long step;
+  int powerRow;
+  int powerCol;
+  byte[][] chunks;
+
+  // the constructor
+  Checkpoint(long step, int powerRow, int powerCol, byte[][] chunks) {
+    this.step = step;
+    this.powerRow = powerRow;
+    this.powerCol = powerCol;
+    this.chunks = chunks;
+  }
+}
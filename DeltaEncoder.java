@@ -0,0 +1,121 @@
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// represents the sending side of a remote game: after each rotation or power
+// station move it encodes the cells the client does not know about yet as a
+// frame of
+//   a varint of flags, 1 if the game is won and 2 if the station moved
+//   the new cell index of the power station, as a varint, if it moved
+//   a varint count of changed tiles, then for each its gap from the one
+//     before and its connectors, as a varint of (gap - 1) << 4 | connectors
+//     of up to 35 bits, so that any gap on the board fits
+//   a varint count of cells whose powered flag flipped, then for each its
+//     gap from the one before, less one, as a varint
+// with cells in increasing order and the first gap measured from index -1.
+// A frame only grows with the cells that changed: it walks the engine's
+// changed cells rather than the board, and after a full recompute still only
+// sends the cells that differ from what the client has. The first frame sends
+// the whole board to a client that starts out with every cell blank.
+class DeltaEncoder {
+  GameEngine engine;
+  // the state of every cell as the client has it, and its power station
+  byte[] sent;
+  int sentStation;
+  // scratch space: the candidate cells of a frame, then its tiles and flips
+  int[] cells;
+  int[] tiles;
+  int[] flips;
+  ByteArrayOutputStream out;
+
+  // the constructor, for a client that knows nothing of the board yet; the
+  // encoder takes over the engine's changed cells, so the engine should have
+  // no other viewer
+  DeltaEncoder(GameEngine engine) {
+    IGrid grid = engine.board.cells;
+    this.engine = engine;
+    this.sent = new byte[grid.rows() * grid.cols()];
+    this.sentStation = -1;
+    this.cells = new int[16];
+    this.tiles = new int[16];
+    this.flips = new int[16];
+    this.out = new ByteArrayOutputStream();
+    engine.changed.addAll();
+  }
+
+  // EFFECT: writes the given value to the given stream as a varint, seven bits
+  // to a byte with the high bit set on every byte but the last
+  static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  // EFFECT: takes the engine's changed cells and records them as sent
+  // returns the frame that brings the client up to date with them
+  byte[] encode() {
+    IGrid grid = this.engine.board.cells;
+    int cols = grid.cols();
+    CellSet changed = this.engine.changed;
+    int count;
+
+    if (changed.all) {
+      count = this.sent.length;
+      this.cells = this.engine.ensureCapacity(this.cells, count);
+      for (int cell = 0; cell < count; cell++) {
+        this.cells[cell] = cell;
+      }
+    }
+    else {
+      count = changed.size;
+      this.cells = this.engine.ensureCapacity(this.cells, count);
+      System.arraycopy(changed.items, 0, this.cells, 0, count);
+      Arrays.sort(this.cells, 0, count);
+    }
+    changed.clear();
+
+    int tileCount = 0;
+    int flipCount = 0;
+    for (int i = 0; i < count; i++) {
+      int cell = this.cells[i];
+      int state = grid.state(cell / cols, cell % cols);
+      int difference = state ^ this.sent[cell];
+
+      if ((difference & IGrid.CONNECTORS) != 0) {
+        this.tiles = this.engine.ensureCapacity(this.tiles, tileCount + 1);
+        this.tiles[tileCount++] = cell;
+      }
+      if ((difference & IGrid.POWERED) != 0) {
+        this.flips = this.engine.ensureCapacity(this.flips, flipCount + 1);
+        this.flips[flipCount++] = cell;
+      }
+      this.sent[cell] = (byte) state;
+    }
+
+    int station = this.engine.powerRow * cols + this.engine.powerCol;
+    boolean moved = station != this.sentStation;
+    this.sentStation = station;
+
+    this.out.reset();
+    writeVarint(this.out, (this.engine.isWon() ? 1 : 0) | (moved ? 2 : 0));
+    if (moved) {
+      writeVarint(this.out, station);
+    }
+    writeVarint(this.out, tileCount);
+    int previous = -1;
+    for (int i = 0; i < tileCount; i++) {
+      int cell = this.tiles[i];
+      writeVarint(this.out,
+          (long) (cell - previous - 1) << 4 | (this.sent[cell] & IGrid.CONNECTORS));
+      previous = cell;
+    }
+    writeVarint(this.out, flipCount);
+    previous = -1;
+    for (int i = 0; i < flipCount; i++) {
+      writeVarint(this.out, this.flips[i] - previous - 1);
+      previous = this.flips[i];
+    }
+    return this.out.toByteArray();
+  }
+}
@@ -0,0 +1,83 @@
+// represents the receiving side of a remote game: a copy of the board kept up
+// to date by applying the frames of a DeltaEncoder in order
+class DeltaMirror {
+  PackedGrid grid;
+  int powerRow;
+  int powerCol;
+  boolean won;
+  // the frame being applied and how far into it this mirror has read
+  byte[] frame;
+  int position;
+
+  // the constructor, for a blank board of the given size
+  DeltaMirror(int rows, int cols) {
+    this.grid = new PackedGrid(rows, cols);
+    this.powerRow = -1;
+    this.powerCol = -1;
+    this.won = false;
+    this.frame = new byte[0];
+    this.position = 0;
+  }
+
+  // EFFECT: reads the next varint of the frame being applied
+  // returns its value
+  int readVarint() {
+    return (int) this.readVarint(32);
+  }
+
+  // EFFECT: reads the next varint of the frame being applied, of at most the
+  // given number of bits rounded up to a whole byte
+  // returns its value
+  long readVarint(int bits) {
+    long value = 0;
+
+    for (int shift = 0; shift < bits; shift += 7) {
+      if (this.position >= this.frame.length) {
+        throw new IllegalArgumentException("Frame cut short");
+      }
+      int next = this.frame[this.position++];
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+
+  // EFFECT: applies the changes in the given frame to this mirror
+  void apply(byte[] frame) {
+    int cols = this.grid.cols();
+    this.frame = frame;
+    this.position = 0;
+
+    int flags = this.readVarint();
+    this.won = (flags & 1) != 0;
+    if ((flags & 2) != 0) {
+      int station = this.readVarint();
+      if (this.powerRow >= 0) {
+        this.grid.setPowerStation(this.powerRow, this.powerCol, false);
+      }
+      this.powerRow = station / cols;
+      this.powerCol = station % cols;
+      this.grid.setPowerStation(this.powerRow, this.powerCol, true);
+    }
+
+    int cell = -1;
+    for (int count = this.readVarint(); count > 0; count--) {
+      long tile = this.readVarint(35);
+      cell += (int) (tile >>> 4) + 1;
+      this.grid.setConnectors(cell / cols, cell % cols, (int) tile & IGrid.CONNECTORS);
+    }
+
+    cell = -1;
+    for (int count = this.readVarint(); count > 0; count--) {
+      cell += this.readVarint() + 1;
+      int row = cell / cols;
+      this.grid.setPowered(row, cell % cols, !this.grid.isPowered(row, cell % cols));
+    }
+
+    if (this.position != frame.length) {
+      throw new IllegalArgumentException("Frame too long");
+    }
+  }
+}
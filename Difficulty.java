@@ -0,0 +1,42 @@
+// represents how hard a board is to solve, as measured by a DifficultyAnalyzer
+class Difficulty {
+  static final String CSV_HEADER = "seed,width,height,choices,forced,probed,rotations,"
+      + "guesses,backtracks,branchDepth,stationDepth,diameter,solved,millis";
+
+  long seed;
+  int width;
+  int height;
+  // the cells with more than one orientation that looks different, and how
+  // many of them propagation alone decides, and probing after it
+  int choices;
+  int forced;
+  int probed;
+  // the fewest clockwise turns that solve the board from how it is now
+  int rotations;
+  // how many guesses the solver made, how many were wrong and how many it
+  // had to keep at once
+  int guesses;
+  int backtracks;
+  int branchDepth;
+  // the longest wire from the power station in the solved board, and the
+  // longest between any two cells
+  int stationDepth;
+  int diameter;
+  boolean solved;
+  long nanos;
+
+  // the constructor
+  Difficulty(long seed, int width, int height) {
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+  }
+
+  // the line of a CSV file with this difficulty, in the order of CSV_HEADER
+  String csv() {
+    return this.seed + "," + this.width + "," + this.height + "," + this.choices + ","
+        + this.forced + "," + this.probed + "," + this.rotations + "," + this.guesses + ","
+        + this.backtracks + "," + this.branchDepth + "," + this.stationDepth + ","
+        + this.diameter + "," + this.solved + "," + String.format("%.3f", this.nanos / 1e6);
+  }
+}
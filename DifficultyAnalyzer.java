@@ -0,0 +1,224 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// represents measuring how hard boards are to solve: how many of their cells
+// are forced, how much the Solver has to guess and how long the wires of the
+// solution run. Run it as
+//   java DifficultyAnalyzer width height [firstSeed] [count] [threads] [file]
+// to measure the boards a LightEmAll of that size starts with for count seeds
+// in a row, on a pool of threads, and write them as CSV to the file or to the
+// standard output. The lines come in seed order however many threads there are.
+class DifficultyAnalyzer {
+  // the number of seeds a task measures before splitting them in half
+  static final int BATCH_SEEDS = 8;
+
+  // measures the boards picked out by the given arguments
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: DifficultyAnalyzer width height [firstSeed] [count] "
+          + "[threads] [file]");
+      return;
+    }
+    int width = Integer.parseInt(args[0]);
+    int height = Integer.parseInt(args[1]);
+    long firstSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+    int count = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+    ForkJoinPool pool = args.length > 4 ? new ForkJoinPool(Integer.parseInt(args[4]))
+        : ForkJoinPool.commonPool();
+
+    long start = System.nanoTime();
+    Difficulty[] results = analyzeAll(width, height, firstSeed, count, pool);
+    try (Writer out = new BufferedWriter(args.length > 5 ? new FileWriter(args[5])
+        : new OutputStreamWriter(System.out))) {
+      writeCsv(results, out);
+    }
+    System.err.printf("%d boards in %.1f s on %d threads%n", count,
+        (System.nanoTime() - start) / 1e9, pool.getParallelism());
+  }
+
+  // the board a LightEmAll of the given size starts with from a Random with
+  // the given seed
+  static Board board(int width, int height, long seed) {
+    Random rand = new Random(seed);
+    Board board = new Board(height, width, rand);
+    board.randomRotate(rand);
+    return board;
+  }
+
+  // the difficulty of the board a LightEmAll of the given size starts with
+  // from a Random with the given seed
+  static Difficulty analyze(int width, int height, long seed) {
+    return analyze(board(width, height, seed), seed);
+  }
+
+  // the difficulty of the given board, which came from the given seed
+  static Difficulty analyze(Board board, long seed) {
+    long start = System.nanoTime();
+    IGrid cells = board.cells;
+    int size = cells.rows() * cells.cols();
+    Difficulty difficulty = new Difficulty(seed, cells.cols(), cells.rows());
+    Solver solver = new Solver(board);
+
+    solver.prepare();
+    for (int cell = 0; cell < size; cell++) {
+      solver.queue.add(cell);
+      solver.pending.add(cell);
+    }
+    boolean[] open = new boolean[size];
+    for (int cell = 0; cell < size; cell++) {
+      open[cell] = Integer.bitCount(solver.domains[cell]) > 1;
+      difficulty.choices += open[cell] ? 1 : 0;
+    }
+
+    boolean fits = solver.join() && solver.propagate();
+    difficulty.forced = decided(solver, open);
+    fits = fits && solver.probe();
+    difficulty.probed = decided(solver, open) - difficulty.forced;
+    difficulty.solved = fits && solver.search();
+    difficulty.guesses = solver.guesses;
+    difficulty.backtracks = solver.backtracks;
+    difficulty.branchDepth = solver.maxDepth;
+
+    if (difficulty.solved) {
+      int[] wires = new int[size];
+      for (int cell = 0; cell < size; cell++) {
+        int turns = Integer.numberOfTrailingZeros(solver.domains[cell]);
+        difficulty.rotations += turns;
+        wires[cell] = solver.oriented(cell, turns);
+      }
+      int station = board.powerRow * cells.cols() + board.powerCol;
+      int[] distances = new int[size];
+      int farthest = farthest(wires, cells.cols(), station, distances);
+      difficulty.stationDepth = distances[farthest];
+      difficulty.diameter = distances[farthest(wires, cells.cols(), farthest, distances)];
+    }
+    difficulty.nanos = System.nanoTime() - start;
+    return difficulty;
+  }
+
+  // the number of the given cells whose orientation the solver has decided
+  static int decided(Solver solver, boolean[] cells) {
+    int count = 0;
+
+    for (int cell = 0; cell < cells.length; cell++) {
+      if (cells[cell] && Integer.bitCount(solver.domains[cell]) == 1) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // EFFECT: sets the given distances to the number of connections between the
+  // given cell and every cell wired to it, or -1 if it is not
+  // returns the cell farthest from it, found by a breadth first search
+  static int farthest(int[] wires, int cols, int from, int[] distances) {
+    IntQueue queue = new IntQueue(16);
+    Arrays.fill(distances, -1);
+    distances[from] = 0;
+    queue.add(from);
+    int last = from;
+
+    while (!queue.isEmpty()) {
+      int cell = queue.remove();
+      last = cell;
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = neighbor(cell, direction, cols, wires.length);
+        int opposite = (direction << 2 | direction >> 2) & IGrid.CONNECTORS;
+
+        if (next >= 0 && distances[next] < 0 && (wires[cell] & direction) != 0
+            && (wires[next] & opposite) != 0) {
+          distances[next] = distances[cell] + 1;
+          queue.add(next);
+        }
+      }
+    }
+    return last;
+  }
+
+  // the index of the cell next to the given one in the given direction, or -1
+  // if it is off a board of the given width and number of cells
+  static int neighbor(int cell, int direction, int cols, int size) {
+    if (direction == IGrid.TOP) {
+      return cell >= cols ? cell - cols : -1;
+    }
+    else if (direction == IGrid.RIGHT) {
+      return cell % cols < cols - 1 ? cell + 1 : -1;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      return cell + cols < size ? cell + cols : -1;
+    }
+    return cell % cols > 0 ? cell - 1 : -1;
+  }
+
+  // the difficulties of the boards LightEmAll games of the given size start
+  // with from the given number of seeds in a row, measured on the given pool
+  static Difficulty[] analyzeAll(int width, int height, long firstSeed, int count,
+      ForkJoinPool pool) {
+    if (width < 1 || height < 1 || count < 0) {
+      throw new IllegalArgumentException("Bad batch");
+    }
+    Difficulty[] results = new Difficulty[count];
+    pool.invoke(new AnalyzeSeeds(results, width, height, firstSeed, 0, count));
+    return results;
+  }
+
+  // EFFECT: writes the given difficulties as CSV, after a header line
+  static void writeCsv(Difficulty[] results, Writer out) throws IOException {
+    out.write(Difficulty.CSV_HEADER);
+    out.write('\n');
+    for (Difficulty difficulty : results) {
+      out.write(difficulty.csv());
+      out.write('\n');
+    }
+  }
+}
+
+// represents measuring the boards of a range of seeds into a shared array,
+// split in half until each task has at most DifficultyAnalyzer.BATCH_SEEDS of
+// them; every result goes to the index of its seed, so the order of the array
+// does not depend on which threads ran the tasks
+class AnalyzeSeeds extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  Difficulty[] results;
+  int width;
+  int height;
+  long firstSeed;
+  int from;
+  int to;
+
+  // the constructor
+  AnalyzeSeeds(Difficulty[] results, int width, int height, long firstSeed, int from, int to) {
+    this.results = results;
+    this.width = width;
+    this.height = height;
+    this.firstSeed = firstSeed;
+    this.from = from;
+    this.to = to;
+  }
+
+  // EFFECT: measures the board of every seed in the range
+  protected void compute() {
+    if (this.to - this.from <= DifficultyAnalyzer.BATCH_SEEDS) {
+      for (int i = this.from; i < this.to; i++) {
+        this.results[i] = DifficultyAnalyzer.analyze(this.width, this.height,
+            this.firstSeed + i);
+      }
+    }
+    else {
+      int middle = (this.from + this.to) / 2;
+      invokeAll(new AnalyzeSeeds(this.results, this.width, this.height, this.firstSeed,
+          this.from, middle),
+          new AnalyzeSeeds(this.results, this.width, this.height, this.firstSeed, middle,
+              this.to));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+// represents a partition of the ints from 0 up to a size into disjoint sets,
+// with path compression and union by rank; a representative stores its rank
+// as -1 - rank in place of a parent, so the whole structure is one array
+class DisjointSet {
+  int[] parent;
+
+  // the constructor, putting every int in a set of its own
+  DisjointSet(int size) {
+    this.parent = new int[size];
+    this.clear();
+  }
+
+  // EFFECT: puts every int back in a set of its own
+  void clear() {
+    Arrays.fill(this.parent, -1);
+  }
+
+  // the representative of the set holding the given int
+  // EFFECT: points the ints on the way at their grandparents
+  int find(int item) {
+    int parent = this.parent[item];
+
+    while (parent >= 0) {
+      int grandparent = this.parent[parent];
+
+      if (grandparent < 0) {
+        return parent;
+      }
+      this.parent[item] = grandparent;
+      item = grandparent;
+      parent = this.parent[item];
+    }
+    return item;
+  }
+
+  // EFFECT: joins the sets holding the two given ints
+  // returns whether they were in different sets
+  boolean union(int first, int second) {
+    int a = this.find(first);
+    int b = this.find(second);
+
+    if (a == b) {
+      return false;
+    }
+    // a smaller stored value means a higher rank
+    if (this.parent[a] > this.parent[b]) {
+      this.parent[a] = b;
+    }
+    else if (this.parent[a] < this.parent[b]) {
+      this.parent[b] = a;
+    }
+    else {
+      this.parent[b] = a;
+      this.parent[a]--;
+    }
+    return true;
+  }
+}
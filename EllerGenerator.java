@@ -0,0 +1,172 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// represents a generator that streams a random spanning tree of wires to a
+// board file one row at a time with Eller's algorithm, so it only ever holds
+// a few rows in memory
+class EllerGenerator {
+  int rows;
+  int cols;
+  long seed;
+  boolean scramble;
+  Random rand;
+
+  // the sets of the cells in the current row, and for the row above, which
+  // cells have a wire down and the set each cell was in
+  DisjointSet sets;
+  boolean[] downAbove;
+  int[] setAbove;
+
+  // scratch space: the connectors of the current row, which cells have a wire
+  // down, the first cell in the current row of each set above, and for each set
+  // whether it has a wire down yet and its last cell
+  byte[] row;
+  boolean[] down;
+  int[] first;
+  boolean[] hasDown;
+  int[] last;
+
+  // the cell left over from the previous row when it could not fill its last
+  // byte, or -1
+  int pending;
+
+  // the constructor
+  EllerGenerator(int rows, int cols, long seed, boolean scramble) {
+    if (rows < 1 || cols < 1) {
+      throw new IllegalArgumentException("A board needs at least one row and column");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.seed = seed;
+    this.scramble = scramble;
+  }
+
+  // EFFECT: writes the board to the file at the given path
+  void writeTo(String path) throws IOException {
+    try (OutputStream out = new FileOutputStream(path)) {
+      this.writeTo(out);
+    }
+  }
+
+  // EFFECT: writes the board to the given stream
+  void writeTo(OutputStream stream) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    BoardFile.writeHeader(out, this.rows, this.cols, this.rows / 2, this.cols / 2, this.seed);
+
+    this.rand = new Random(this.seed);
+    this.sets = new DisjointSet(this.cols);
+    this.downAbove = new boolean[this.cols];
+    this.setAbove = new int[this.cols];
+    this.row = new byte[this.cols];
+    this.down = new boolean[this.cols];
+    this.first = new int[this.cols];
+    this.hasDown = new boolean[this.cols];
+    this.last = new int[this.cols];
+    this.pending = -1;
+    Arrays.fill(this.first, -1);
+
+    for (int r = 0; r < this.rows; r++) {
+      this.nextRow(r == this.rows - 1);
+
+      if (this.scramble) {
+        for (int c = 0; c < this.cols; c++) {
+          this.row[c] = (byte) PackedGrid.turn(this.row[c], this.rand.nextInt(4));
+        }
+      }
+      this.writeRow(out);
+    }
+
+    if (this.pending >= 0) {
+      out.writeByte(this.pending);
+    }
+    out.flush();
+  }
+
+  // EFFECT: decides the wires of the next row, given those of the row above
+  void nextRow(boolean lastRow) {
+    DisjointSet sets = this.sets;
+    sets.clear();
+
+    // cells joined to the row above stay in the set they were joined to
+    for (int c = 0; c < this.cols; c++) {
+      this.row[c] = (byte) (this.downAbove[c] ? IGrid.TOP : 0);
+
+      if (this.downAbove[c]) {
+        int set = this.setAbove[c];
+
+        if (this.first[set] < 0) {
+          this.first[set] = c;
+        }
+        else {
+          sets.union(this.first[set], c);
+        }
+      }
+    }
+    for (int c = 0; c < this.cols; c++) {
+      if (this.downAbove[c]) {
+        this.first[this.setAbove[c]] = -1;
+      }
+    }
+
+    // join neighbors in different sets, all of them on the last row
+    for (int c = 0; c < this.cols - 1; c++) {
+      if ((lastRow || this.rand.nextBoolean()) && sets.union(c, c + 1)) {
+        this.row[c] |= IGrid.RIGHT;
+        this.row[c + 1] |= IGrid.LEFT;
+      }
+    }
+
+    if (lastRow) {
+      return;
+    }
+
+    // every set needs at least one wire down so that it stays connected
+    for (int c = 0; c < this.cols; c++) {
+      int set = sets.find(c);
+      this.setAbove[c] = set;
+      this.down[c] = this.rand.nextBoolean();
+      this.hasDown[set] |= this.down[c];
+      this.last[set] = c;
+    }
+    for (int c = 0; c < this.cols; c++) {
+      int set = this.setAbove[c];
+
+      if (!this.hasDown[set] && this.last[set] == c) {
+        this.down[c] = true;
+      }
+      if (this.down[c]) {
+        this.row[c] |= IGrid.BOTTOM;
+      }
+    }
+    for (int c = 0; c < this.cols; c++) {
+      this.hasDown[this.setAbove[c]] = false;
+    }
+
+    boolean[] temp = this.downAbove;
+    this.downAbove = this.down;
+    this.down = temp;
+  }
+
+  // EFFECT: writes the connectors of the current row to the given stream, two
+  // cells to a byte
+  void writeRow(DataOutputStream out) throws IOException {
+    int c = 0;
+
+    if (this.pending >= 0) {
+      out.writeByte(this.pending | (this.row[0] << 4));
+      this.pending = -1;
+      c = 1;
+    }
+    for (; c + 1 < this.cols; c += 2) {
+      out.writeByte(this.row[c] | (this.row[c + 1] << 4));
+    }
+    if (c < this.cols) {
+      this.pending = this.row[c];
+    }
+  }
+}
@@ -0,0 +1,77 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// represents an append-only binary log of the input to a game: a header of the
+// magic number, the format version, the width and height of the board, the
+// seed of the Random it was made from and the time the log was started,
+// followed by one record per event of its kind, the nanoseconds since the log
+// was started and two ints (a click's x and y, a rotation's row and column or
+// a power move's direction and 0)
+class EventLog {
+  static final int MAGIC = 0x4C454D4C;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int RECORD_SIZE = 17;
+
+  // the kinds of event
+  static final int CLICK = 1;
+  static final int ROTATE = 2;
+  static final int MOVE = 3;
+
+  DataOutputStream out;
+  long start;
+  int events;
+
+  // the constructor, writing the header for a game of the given size made
+  // from a Random with the given seed
+  EventLog(OutputStream stream, int width, int height, long seed) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    this.start = System.nanoTime();
+    this.events = 0;
+    this.out.writeInt(MAGIC);
+    this.out.writeInt(VERSION);
+    this.out.writeInt(width);
+    this.out.writeInt(height);
+    this.out.writeLong(seed);
+    this.out.writeLong(System.currentTimeMillis());
+  }
+
+  // EFFECT: appends a click at the given position in the window
+  void click(int x, int y) {
+    this.append(CLICK, x, y);
+  }
+
+  // EFFECT: appends a rotation of the cell at the given position
+  void rotate(int row, int col) {
+    this.append(ROTATE, row, col);
+  }
+
+  // EFFECT: appends a move of the power station in the given direction
+  void move(int direction) {
+    this.append(MOVE, direction, 0);
+  }
+
+  // EFFECT: appends an event of the given kind, stamped with the time since
+  // the log was started; the game cannot stop for a failed write, so it is
+  // thrown unchecked
+  void append(int kind, int first, int second) {
+    try {
+      this.out.writeByte(kind);
+      this.out.writeLong(System.nanoTime() - this.start);
+      this.out.writeInt(first);
+      this.out.writeInt(second);
+      this.events++;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // EFFECT: writes out every event appended so far
+  void flush() throws IOException {
+    this.out.flush();
+  }
+}
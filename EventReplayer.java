@@ -0,0 +1,86 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+// represents a replayer that rebuilds the state of a game from an EventLog by
+// feeding its events to a GameEngine, as fast as it can and without drawing
+class EventReplayer {
+  DataInputStream in;
+  int width;
+  int height;
+  long seed;
+  long startMillis;
+  GameEngine engine;
+  // the number of events replayed so far, and when the last one happened
+  int events;
+  long nanos;
+
+  // the constructor, reading the header and setting up the game as it was
+  // when the log was started
+  EventReplayer(InputStream stream) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+
+    if (this.in.readInt() != EventLog.MAGIC || this.in.readInt() != EventLog.VERSION) {
+      throw new IOException("Not an event log");
+    }
+    this.width = this.in.readInt();
+    this.height = this.in.readInt();
+    this.seed = this.in.readLong();
+    this.startMillis = this.in.readLong();
+
+    // the same steps as the game's constructor for a Random
+    Random rand = new Random(this.seed);
+    Board board = new Board(this.height, this.width, rand);
+    board.randomRotate(rand);
+    this.engine = new GameEngine(board);
+    this.events = 0;
+    this.nanos = 0;
+  }
+
+  // EFFECT: replays the next event of the log
+  // returns false if the log has no more events; a record cut short by a game
+  // that stopped while writing it counts as the end of the log
+  boolean step() throws IOException {
+    int kind = this.in.read();
+    if (kind < 0) {
+      return false;
+    }
+
+    int first;
+    int second;
+    try {
+      this.nanos = this.in.readLong();
+      first = this.in.readInt();
+      second = this.in.readInt();
+    }
+    catch (EOFException e) {
+      return false;
+    }
+
+    if (kind == EventLog.ROTATE) {
+      this.engine.rotate(first, second);
+    }
+    else if (kind == EventLog.MOVE) {
+      this.engine.movePower(first);
+    }
+    else if (kind != EventLog.CLICK) {
+      throw new IOException("Unknown event " + kind);
+    }
+    this.events++;
+    return true;
+  }
+
+  // EFFECT: replays up to the given number of events of the log
+  // returns the engine with the state of the game after them
+  GameEngine replay(int count) throws IOException {
+    boolean more = true;
+
+    while (more && this.events < count) {
+      more = this.step();
+    }
+    return this.engine;
+  }
+}
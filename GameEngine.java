@@ -0,0 +1,678 @@
+import java.util.Arrays;
+
+// represents the rules of the LightEmAll game on a Board, with no drawing: the
+// pieces can be rotated and the power station moved, and the engine keeps
+// track of which cells are powered and whether the game is won
+class GameEngine {
+  Board board;
+  int powerRow;
+  int powerCol;
+  boolean won;
+  IntQueue queue;
+  // the indices of the powered cells and how many cells are powered; every
+  // powered cell has the direction of the neighbor it got its power from, or 0
+  // for the station, at the same place in poweredParents, and its place in
+  // poweredCells in positions, so that the powered cells form a tree
+  int[] poweredCells;
+  byte[] poweredParents;
+  CellInts positions;
+  int poweredCount;
+  // whether poweredCells matches the grid; changes made to the grid without
+  // going through this engine are only picked up by changePower
+  boolean powerKnown;
+  // whether poweredParents and positions match poweredCells, so that turning a
+  // powered piece only has to look at the part of the tree it can cut off;
+  // engines that work out the power without a search leave the tree unknown
+  boolean treeKnown;
+  // scratch space for refreshPower: the cells it reached, their indices and
+  // the directions they got their power from; repairPower also lists the cells
+  // it cuts off in reachedCells
+  long[] reached;
+  int[] reachedCells;
+  byte[] reachedParents;
+  // the cells whose state changed since they were last taken by a viewer
+  CellSet changed;
+
+  // the constructor, with the power station where the board has it
+  GameEngine(Board board) {
+    this.board = board;
+    this.powerRow = board.powerRow;
+    this.powerCol = board.powerCol;
+    this.won = false;
+    this.queue = new IntQueue(16);
+    this.poweredCells = new int[16];
+    this.poweredParents = new byte[16];
+    this.positions = new CellInts();
+    this.poweredCount = this.countPowered();
+    this.powerKnown = false;
+    this.treeKnown = false;
+    this.reached = new long[0];
+    this.reachedCells = new int[16];
+    this.reachedParents = new byte[16];
+    this.changed = new CellSet();
+  }
+
+  // is the cell at the given position powered?
+  boolean isPowered(int row, int col) {
+    return this.board.cells.isPowered(row, col);
+  }
+
+  // has every cell been powered?
+  boolean isWon() {
+    return this.won;
+  }
+
+  // EFFECT: rotates the GamePiece at the given position clockwise, unless the
+  // game is over or the position is off the board
+  // returns whether the piece was rotated
+  boolean rotate(int row, int col) {
+    IGrid cells = this.board.cells;
+
+    if (this.won || row < 0 || row >= cells.rows() || col < 0 || col >= cells.cols()) {
+      return false;
+    }
+    this.rotatePiece(row, col);
+    this.checkGameWon();
+    return true;
+  }
+
+  // EFFECT: moves the power station one cell in the given direction, one of
+  // IGrid.TOP, IGrid.RIGHT, IGrid.BOTTOM or IGrid.LEFT, if it is connected that way
+  // and the game is not over
+  // returns whether the power station moved
+  boolean movePower(int direction) {
+    int updatedPowerRow = this.powerRow;
+    int updatedPowerCol = this.powerCol;
+
+    if (direction == IGrid.RIGHT) {
+      updatedPowerCol++;
+    }
+    else if (direction == IGrid.LEFT) {
+      updatedPowerCol--;
+    }
+    else if (direction == IGrid.TOP) {
+      updatedPowerRow--;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      updatedPowerRow++;
+    }
+
+    if (this.won
+        || !this.allowedToMove(this.powerRow, this.powerCol, updatedPowerRow, updatedPowerCol)) {
+      return false;
+    }
+    this.moveStation(updatedPowerRow, updatedPowerCol);
+
+    // the station only moves along a connection, so it stays in the same
+    // powered region and nothing else needs to change
+    if (!this.powerKnown) {
+      this.changePower();
+    }
+    this.checkGameWon();
+    return true;
+  }
+
+  // EFFECT: puts the power station at the given position, leaving the power as
+  // it is; a station moved onto a powered cell becomes the root of the tree
+  void moveStation(int row, int col) {
+    int cols = this.board.cells.cols();
+    this.board.cells.setPowerStation(this.powerRow, this.powerCol, false);
+    this.changed.add(this.powerRow * cols + this.powerCol);
+    this.powerCol = col;
+    this.powerRow = row;
+    this.board.cells.setPowerStation(this.powerRow, this.powerCol, true);
+    this.changed.add(this.powerRow * cols + this.powerCol);
+
+    if (this.powerKnown && this.treeKnown && this.board.cells.isPowered(row, col)) {
+      this.reroot(row * cols + col);
+    }
+    else {
+      this.treeKnown = false;
+    }
+  }
+
+  // EFFECT: makes the powered cell with the given index the root of the tree,
+  // turning round the directions of the cells between it and the old root
+  void reroot(int cell) {
+    int current = cell;
+    int child = 0;
+
+    while (current >= 0) {
+      int at = this.positions.get(current);
+      int parent = this.poweredParents[at];
+      this.poweredParents[at] = (byte) child;
+      child = opposite(parent);
+      current = parent == 0 ? -1 : this.neighbor(current, parent);
+    }
+  }
+
+  // EFFECT: applies the rotations and power moves of the given batch in order,
+  // refusing the same ones that rotate and movePower would, but recomputes the
+  // power once at the end instead of after every rotation
+  // returns the indices of the powered cells afterwards, in increasing order
+  //
+  // A game is only won once every cell is joined to the station, which takes
+  // at least one connection fewer than there are cells. The connections are
+  // counted as the pieces turn, and the power is only worked out part way
+  // through when there are enough of them for the game to have been won, so
+  // that the moves after a win are refused just as they would be one by one.
+  int[] apply(MoveBatch batch) {
+    IGrid cells = this.board.cells;
+    int rows = cells.rows();
+    int cols = cells.cols();
+    long needed = (long) rows * cols - 1;
+    long joined = this.won ? 0 : this.countJoined();
+    // whether poweredCells matched the grid when the power was last worked out,
+    // so that only the cells it touches need to be looked at again
+    boolean refresh = this.powerKnown;
+
+    for (int i = 0; i < batch.size && !this.won; i++) {
+      int first = batch.firsts[i];
+      int second = batch.seconds[i];
+
+      if (batch.kinds[i] == MoveBatch.MOVE) {
+        int row = this.powerRow;
+        int col = this.powerCol;
+
+        if (first == IGrid.RIGHT) {
+          col++;
+        }
+        else if (first == IGrid.LEFT) {
+          col--;
+        }
+        else if (first == IGrid.TOP) {
+          row--;
+        }
+        else if (first == IGrid.BOTTOM) {
+          row++;
+        }
+        // the station only moves along a connection, so the powered region
+        // stays the same; movePower still works out power it does not know,
+        // which can win the game when enough cells are joined
+        if (this.allowedToMove(this.powerRow, this.powerCol, row, col)) {
+          this.moveStation(row, col);
+
+          if (!this.powerKnown && joined >= needed) {
+            this.refreshOrChangePower(refresh);
+            refresh = true;
+          }
+          if (this.powerKnown) {
+            this.checkGameWon();
+          }
+        }
+      }
+      else if (first >= 0 && first < rows && second >= 0 && second < cols) {
+        joined -= this.countJoined(first * cols + second);
+        cells.rotate(first, second);
+        this.changed.add(first * cols + second);
+        this.powerKnown = false;
+        joined += this.countJoined(first * cols + second);
+
+        if (joined >= needed) {
+          this.refreshOrChangePower(refresh);
+          this.checkGameWon();
+          refresh = true;
+        }
+      }
+    }
+
+    if (!this.powerKnown) {
+      this.refreshOrChangePower(refresh);
+    }
+    this.checkGameWon();
+
+    int[] powered = Arrays.copyOf(this.poweredCells, this.poweredCount);
+    Arrays.sort(powered);
+    return powered;
+  }
+
+  // EFFECT: works out the power again, only around the cells powered before if
+  // the given flag says poweredCells still matches the grid
+  void refreshOrChangePower(boolean refresh) {
+    if (refresh) {
+      this.refreshPower();
+      this.powerKnown = true;
+    }
+    else {
+      this.changePower();
+    }
+  }
+
+  // the number of pairs of neighboring cells on the board that are connected
+  // to each other
+  long countJoined() {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+    // the connectors of the row above, looked up once per cell
+    int[] above = new int[cols];
+    long joined = 0;
+
+    for (int row = 0; row < cells.rows(); row++) {
+      int before = 0;
+
+      for (int col = 0; col < cols; col++) {
+        int mask = cells.connectors(row, col);
+
+        // a piece's left connector joins the right one of the piece before it,
+        // and its top connector the bottom one of the piece above it
+        joined += (mask >> 3 & before >> 1 & 1) + (mask & above[col] >> 2 & 1);
+        above[col] = mask;
+        before = mask;
+      }
+    }
+    return joined;
+  }
+
+  // the number of neighbors of the cell with the given index that it is
+  // connected to
+  int countJoined(int cell) {
+    int joined = 0;
+
+    for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+      if (this.connectedNeighbor(cell, direction) >= 0) {
+        joined++;
+      }
+    }
+    return joined;
+  }
+
+  // checks whether the power station is allowed to move the desired coordinates
+  boolean allowedToMove(int cRow, int cCol, int desiredRow, int desiredCol) {
+    IGrid cells = this.board.cells;
+
+    if (desiredRow < 0 || desiredRow >= cells.rows() || desiredCol < 0
+        || desiredCol >= cells.cols()) {
+      return false;
+    }
+
+    int cPiece = cells.connectors(cRow, cCol);
+    int desiredPiece = cells.connectors(desiredRow, desiredCol);
+
+    if (cRow < desiredRow) {
+      return (cPiece & IGrid.BOTTOM) != 0 && (desiredPiece & IGrid.TOP) != 0;
+    }
+    else if (cRow > desiredRow) {
+      return (cPiece & IGrid.TOP) != 0 && (desiredPiece & IGrid.BOTTOM) != 0;
+    }
+    else if (cCol < desiredCol) {
+      return (cPiece & IGrid.RIGHT) != 0 && (desiredPiece & IGrid.LEFT) != 0;
+    }
+    else if (cCol > desiredCol) {
+      return (cPiece & IGrid.LEFT) != 0 && (desiredPiece & IGrid.RIGHT) != 0;
+    }
+    return false;
+  }
+
+  // EFFECT: rotates the GamePiece at the given position and updates only the
+  // power of the cells that the rotation can affect
+  void rotatePiece(int row, int col) {
+    this.turnPiece(row, col, 1);
+  }
+
+  // EFFECT: rotates the GamePiece at the given position clockwise the given
+  // number of times and updates only the power of the cells that the
+  // rotations can affect
+  void turnPiece(int row, int col, int turns) {
+    IGrid cells = this.board.cells;
+    int cell = row * cells.cols() + col;
+    boolean wasPowered = cells.isPowered(row, col);
+
+    for (int i = 0; i < turns; i++) {
+      cells.rotate(row, col);
+    }
+    this.changed.add(cell);
+
+    if (!this.powerKnown) {
+      this.changePower();
+    }
+    else if (wasPowered && this.treeKnown) {
+      this.repairPower(cell);
+    }
+    else if (wasPowered) {
+      this.refreshPower();
+    }
+    else {
+      int direction = this.poweredDirection(cell);
+
+      if (direction != 0) {
+        this.spreadPower(cell, direction);
+      }
+    }
+  }
+
+  // is the cell at the given position connected to a powered neighbor?
+  boolean touchesPower(int row, int col) {
+    return this.poweredDirection(row * this.board.cells.cols() + col) != 0;
+  }
+
+  // the direction of a powered neighbor that the cell with the given index is
+  // connected to, or 0 if there is none
+  int poweredDirection(int current) {
+    for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+      int next = this.connectedNeighbor(current, direction);
+
+      if (next >= 0 && this.isPowered(next)) {
+        return direction;
+      }
+    }
+    return 0;
+  }
+
+  // is the cell with the given index powered?
+  boolean isPowered(int cell) {
+    int cols = this.board.cells.cols();
+    return this.board.cells.isPowered(cell / cols, cell % cols);
+  }
+
+  // the direction of the neighbor the powered cell with the given index got
+  // its power from, or 0 for the station
+  int parentOf(int cell) {
+    return this.poweredParents[this.positions.get(cell)];
+  }
+
+  // is the cell with the given index powered by its neighbor in the given
+  // direction?
+  boolean isChild(int cell, int direction) {
+    return this.isPowered(cell) && this.parentOf(cell) == direction;
+  }
+
+  // the direction opposite the given one, or 0 for 0
+  static int opposite(int direction) {
+    return (direction << 2 | direction >> 2) & IGrid.CONNECTORS;
+  }
+
+  // the index of the neighbor of the given cell in the given direction, or -1
+  // if it is off the board
+  int neighbor(int current, int direction) {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+
+    if (direction == IGrid.TOP) {
+      return current >= cols ? current - cols : -1;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      return current / cols < cells.rows() - 1 ? current + cols : -1;
+    }
+    else if (direction == IGrid.LEFT) {
+      return current % cols > 0 ? current - 1 : -1;
+    }
+    else {
+      return current % cols < cols - 1 ? current + 1 : -1;
+    }
+  }
+
+  // the index of the neighbor of the given cell in the given direction if the
+  // two cells are connected to each other, or -1 otherwise
+  int connectedNeighbor(int current, int direction) {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+    int row = current / cols;
+    int col = current % cols;
+
+    if ((cells.connectors(row, col) & direction) == 0) {
+      return -1;
+    }
+    else if (direction == IGrid.TOP) {
+      return row > 0 && (cells.connectors(row - 1, col) & IGrid.BOTTOM) != 0
+          ? current - cols : -1;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      return row < cells.rows() - 1 && (cells.connectors(row + 1, col) & IGrid.TOP) != 0
+          ? current + cols : -1;
+    }
+    else if (direction == IGrid.LEFT) {
+      return col > 0 && (cells.connectors(row, col - 1) & IGrid.RIGHT) != 0
+          ? current - 1 : -1;
+    }
+    else {
+      return col < cols - 1 && (cells.connectors(row, col + 1) & IGrid.LEFT) != 0
+          ? current + 1 : -1;
+    }
+  }
+
+  // EFFECT: powers the cell with the given index from its neighbor in the
+  // given direction, or as the station for 0, and every unpowered cell
+  // connected to it, recording them in poweredCells
+  void spreadPower(int start, int parent) {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+    IntQueue queue = this.queue;
+    int before = this.poweredCount;
+    queue.clear();
+
+    this.setPowered(start, true);
+    this.addPowered(start, parent);
+    queue.add(start);
+
+    while (!queue.isEmpty()) {
+      int current = queue.remove();
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.connectedNeighbor(current, direction);
+
+        if (next >= 0 && !cells.isPowered(next / cols, next % cols)) {
+          this.setPowered(next, true);
+          this.addPowered(next, opposite(direction));
+          queue.add(next);
+        }
+      }
+    }
+    Metrics.CELLS_VISITED.add(this.poweredCount - before);
+  }
+
+  // EFFECT: works out the power again after the powered cell with the given
+  // index turned, touching only the cells that got their power through a
+  // connection it lost and the cells that its new connections reach: the cut
+  // off cells are unpowered, and then the ones still connected to a powered
+  // cell are powered again from it
+  void repairPower(int cell) {
+    int parent = this.parentOf(cell);
+    int count = 0;
+
+    if (parent == 0 || this.connectedNeighbor(cell, parent) >= 0) {
+      // the turned cell keeps its power, but not the neighbors it powered
+      // through a connection it no longer has
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.neighbor(cell, direction);
+
+        if (next >= 0 && this.connectedNeighbor(cell, direction) < 0
+            && this.isChild(next, opposite(direction))) {
+          count = this.cut(next, count);
+        }
+      }
+    }
+    else {
+      count = this.cut(cell, count);
+    }
+
+    for (int i = 0; i < count; i++) {
+      int current = this.reachedCells[i];
+
+      if (!this.isPowered(current)) {
+        int direction = this.poweredDirection(current);
+
+        if (direction != 0) {
+          this.spreadPower(current, direction);
+        }
+      }
+    }
+    if (this.isPowered(cell)) {
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.connectedNeighbor(cell, direction);
+
+        if (next >= 0 && !this.isPowered(next)) {
+          this.spreadPower(next, opposite(direction));
+        }
+      }
+    }
+    Metrics.CELLS_VISITED.add(count);
+  }
+
+  // EFFECT: unpowers the powered cell with the given index and every cell
+  // that got its power through it, listing them in reachedCells after the
+  // given number of cells already there
+  // returns the number of cells listed in reachedCells
+  int cut(int root, int count) {
+    IntQueue queue = this.queue;
+    queue.clear();
+    queue.add(root);
+
+    while (!queue.isEmpty()) {
+      int current = queue.remove();
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.neighbor(current, direction);
+
+        if (next >= 0 && this.isChild(next, opposite(direction))) {
+          queue.add(next);
+        }
+      }
+      this.setPowered(current, false);
+      this.removePowered(current);
+      this.reachedCells = this.ensureCapacity(this.reachedCells, count + 1);
+      this.reachedCells[count++] = current;
+    }
+    return count;
+  }
+
+  // EFFECT: recomputes the powered region from the power station, touching only
+  // the cells that were powered before or are powered now
+  void refreshPower() {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+    int words = (int) (((long) cells.rows() * cols + 63) / 64);
+    IntQueue queue = this.queue;
+    queue.clear();
+
+    if (this.reached.length < words) {
+      this.reached = new long[words];
+    }
+
+    int station = this.powerRow * cols + this.powerCol;
+    int count = 0;
+    this.reached[station >> 6] |= 1L << station;
+    this.reachedCells = this.ensureCapacity(this.reachedCells, count + 1);
+    this.reachedParents = this.ensureCapacity(this.reachedParents, count + 1);
+    this.reachedParents[count] = 0;
+    this.reachedCells[count++] = station;
+    queue.add(station);
+
+    while (!queue.isEmpty()) {
+      int current = queue.remove();
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.connectedNeighbor(current, direction);
+
+        if (next >= 0 && (this.reached[next >> 6] & (1L << next)) == 0) {
+          this.reached[next >> 6] |= 1L << next;
+          this.reachedCells = this.ensureCapacity(this.reachedCells, count + 1);
+          this.reachedParents = this.ensureCapacity(this.reachedParents, count + 1);
+          this.reachedParents[count] = (byte) opposite(direction);
+          this.reachedCells[count++] = next;
+          queue.add(next);
+        }
+      }
+    }
+
+    // cells that lost power
+    for (int i = 0; i < this.poweredCount; i++) {
+      int cell = this.poweredCells[i];
+
+      if ((this.reached[cell >> 6] & (1L << cell)) == 0) {
+        this.setPowered(cell, false);
+      }
+    }
+
+    // cells that gained power, clearing the scratch bits on the way
+    for (int i = 0; i < count; i++) {
+      int cell = this.reachedCells[i];
+
+      if (!cells.isPowered(cell / cols, cell % cols)) {
+        this.setPowered(cell, true);
+      }
+      this.positions.set(cell, i);
+      this.reached[cell >> 6] &= ~(1L << cell);
+    }
+
+    int[] previous = this.poweredCells;
+    this.poweredCells = this.reachedCells;
+    this.poweredCount = count;
+    this.reachedCells = previous;
+    byte[] previousParents = this.poweredParents;
+    this.poweredParents = this.reachedParents;
+    this.reachedParents = previousParents;
+    this.treeKnown = true;
+    Metrics.CELLS_VISITED.add(count);
+  }
+
+  // EFFECT: sets whether the cell with the given index is powered and records
+  // it as changed
+  void setPowered(int cell, boolean powered) {
+    int cols = this.board.cells.cols();
+    this.board.cells.setPowered(cell / cols, cell % cols, powered);
+    this.changed.add(cell);
+  }
+
+  // EFFECT: records the cell with the given index as powered from its
+  // neighbor in the given direction, or as the station for 0
+  void addPowered(int cell, int parent) {
+    this.poweredCells = this.ensureCapacity(this.poweredCells, this.poweredCount + 1);
+    this.poweredParents = this.ensureCapacity(this.poweredParents, this.poweredCount + 1);
+    this.positions.set(cell, this.poweredCount);
+    this.poweredParents[this.poweredCount] = (byte) parent;
+    this.poweredCells[this.poweredCount++] = cell;
+  }
+
+  // EFFECT: forgets the powered cell with the given index, moving the last
+  // powered cell into its place
+  void removePowered(int cell) {
+    int at = this.positions.get(cell);
+    int last = this.poweredCells[--this.poweredCount];
+    this.poweredCells[at] = last;
+    this.poweredParents[at] = this.poweredParents[this.poweredCount];
+    this.positions.set(last, at);
+  }
+
+  // the given array, or a copy of it with room for at least the given size
+  int[] ensureCapacity(int[] items, int size) {
+    if (size <= items.length) {
+      return items;
+    }
+    return Arrays.copyOf(items, Math.max(size, items.length * 2));
+  }
+
+  // the given array, or a copy of it with room for at least the given size
+  byte[] ensureCapacity(byte[] items, int size) {
+    if (size <= items.length) {
+      return items;
+    }
+    return Arrays.copyOf(items, Math.max(size, items.length * 2));
+  }
+
+  // EFFECT: changes the power connections between GamePieces
+  void changePower() {
+    long start = Metrics.start();
+    IGrid cells = this.board.cells;
+    cells.clearPowered();
+    this.changed.addAll();
+    this.poweredCount = 0;
+    this.spreadPower(this.powerRow * cells.cols() + this.powerCol, 0);
+    this.powerKnown = true;
+    this.treeKnown = true;
+    Metrics.CHANGE_POWER.stop(start);
+  }
+
+  // EFFECT: checks if the user has finished the game
+  void checkGameWon() {
+    long start = Metrics.start();
+    if (this.poweredCount == (long) this.board.cells.rows() * this.board.cells.cols()) {
+      this.won = true;
+    }
+    Metrics.CHECK_GAME_WON.stop(start);
+  }
+
+  // the number of powered cells on the board
+  int countPowered() {
+    return (int) this.board.cells.countPowered();
+  }
+}
@@ -0,0 +1,86 @@
+import javalib.worldimages.*;
+
+// represents a GamePiece 
+class GamePiece {
+  int row;
+  int col;
+  boolean left;
+  boolean right;
+  boolean top;
+  boolean bottom;
+  boolean powerStation;
+  boolean powered;
+
+  // the constructor
+  GamePiece(int row, int col) {
+    this.row = row;
+    this.col = col;
+    this.left = false;
+    this.right = false;
+    this.top = false;
+    this.bottom = false;
+    this.powerStation = false;
+    this.powered = false;
+  }
+  
+  // the constructor for testing
+  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom,
+      boolean isPowered) {
+    this.row = row;
+    this.col = col;
+    this.left = left;
+    this.right = right;
+    this.top = top;
+    this.bottom = bottom;
+    this.powerStation = false;
+    this.powered = isPowered;
+  }
+
+  // the constructor for testing
+  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom) {
+    this.row = row;
+    this.col = col;
+    this.left = left;
+    this.right = right;
+    this.top = top;
+    this.bottom = bottom;
+    this.powerStation = false;
+    this.powered = false;
+  }
+
+  // the connectors of this GamePiece as a bitmask of IGrid.TOP, IGrid.RIGHT,
+  // IGrid.BOTTOM and IGrid.LEFT
+  int connectors() {
+    return (this.top ? IGrid.TOP : 0) | (this.right ? IGrid.RIGHT : 0)
+        | (this.bottom ? IGrid.BOTTOM : 0) | (this.left ? IGrid.LEFT : 0);
+  }
+
+  // EFFECT: sets the connectors of this GamePiece from the given bitmask
+  void setConnectors(int mask) {
+    this.top = (mask & IGrid.TOP) != 0;
+    this.right = (mask & IGrid.RIGHT) != 0;
+    this.bottom = (mask & IGrid.BOTTOM) != 0;
+    this.left = (mask & IGrid.LEFT) != 0;
+  }
+
+  // EFFECT: rotates this GamePiece clockwise by 45 degrees
+  void rotate() {
+    boolean temp = this.top;
+    this.top = this.left;
+    this.left = this.bottom;
+    this.bottom = this.right;
+    this.right = temp;
+  }
+
+  // the state of this GamePiece as a bitmask of its connectors, IGrid.STATION
+  // and IGrid.POWERED
+  int state() {
+    return this.connectors() | (this.powerStation ? IGrid.STATION : 0)
+        | (this.powered ? IGrid.POWERED : 0);
+  }
+
+  // draws this cell
+  WorldImage draw() {
+    return TileAtlas.tile(this.state());
+  }
+}
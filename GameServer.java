@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// represents a server that hosts many games at once over local sockets, one
+// session per connection, each running on a thread of its own: a virtual thread
+// when the JVM has them, or a platform thread with a small stack otherwise
+//
+// A session speaks a line protocol, one reply line per command line:
+//   NEW width height seed  starts a game as LightEmAll would from the seed,
+//                          and replies OK width height
+//   ROTATE row col         rotates a piece, replying OK with the number of
+//                          powered cells and whether the game is won, or NO
+//                          if the rotation was refused
+//   MOVE direction         moves the power station up, down, left or right,
+//                          replying as ROTATE does
+//   STATE                  replies STATE rows cols powerRow powerCol won and
+//                          the state of every cell as two hex digits, row
+//                          after row
+//   SYNC                   replies SYNC and, in hex, the DeltaEncoder frame
+//                          of what changed since the last SYNC, the whole
+//                          board the first time
+//   QUIT                   replies BYE and closes the connection
+// and any other line is answered with ERROR and the reason. A session only
+// keeps a GameEngine over a packed Board, a byte per cell.
+class GameServer {
+  // the largest board a session may start
+  static final int MAX_CELLS = 1 << 22;
+  // the stack size of a session's platform thread, when there are no virtual
+  // threads
+  static final long PLATFORM_STACK = 1 << 18;
+  static final int BACKLOG = 4096;
+
+  ServerSocket server;
+  ThreadFactory threads;
+  boolean virtual;
+  // the sessions open now, the most open at once and the commands handled
+  AtomicInteger sessions;
+  AtomicInteger peakSessions;
+  AtomicLong commands;
+
+  // the constructor, listening on the given port of the loopback address, or
+  // on any free port for 0
+  GameServer(int port) throws IOException {
+    this.server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    this.threads = virtualThreads();
+    this.virtual = this.threads != null;
+    if (!this.virtual) {
+      this.threads = platformThreads();
+    }
+    this.sessions = new AtomicInteger();
+    this.peakSessions = new AtomicInteger();
+    this.commands = new AtomicLong();
+  }
+
+  // runs a server on the port given as the first argument, 7777 by default,
+  // with its Metrics published over JMX
+  public static void main(String[] args) throws IOException {
+    GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : 7777);
+    Metrics.install();
+    System.out.println("serving on port " + server.port()
+        + (server.virtual ? " with virtual threads" : " with platform threads"));
+    server.serve();
+  }
+
+  // a factory of virtual threads, or null if this JVM has none; they are
+  // looked up by reflection so that the game still builds on older JDKs
+  static ThreadFactory virtualThreads() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+          .getMethod("factory").invoke(builder);
+    }
+    catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  // a factory of daemon platform threads with small stacks
+  static ThreadFactory platformThreads() {
+    return runnable -> {
+      Thread thread = new Thread(null, runnable, "session", PLATFORM_STACK);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  // a factory of threads for sessions, virtual ones if this JVM has them
+  static ThreadFactory sessionThreads() {
+    ThreadFactory threads = virtualThreads();
+    return threads != null ? threads : platformThreads();
+  }
+
+  // the port this server listens on
+  int port() {
+    return this.server.getLocalPort();
+  }
+
+  // EFFECT: accepts connections until this server is closed, starting a
+  // session for each
+  void serve() {
+    try {
+      while (true) {
+        Socket socket = this.server.accept();
+        socket.setTcpNoDelay(true);
+        this.threads.newThread(new GameSession(this, socket)).start();
+      }
+    }
+    catch (IOException e) {
+      // the server socket was closed
+    }
+  }
+
+  // EFFECT: accepts connections on a thread of its own
+  void start() {
+    Thread thread = new Thread(this::serve, "accept");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // EFFECT: stops accepting connections; open sessions run until their
+  // clients leave
+  void close() throws IOException {
+    this.server.close();
+  }
+
+  // EFFECT: counts a session as open
+  void opened() {
+    this.peakSessions.accumulateAndGet(this.sessions.incrementAndGet(), Math::max);
+  }
+
+  // EFFECT: counts a session as closed
+  void closed() {
+    this.sessions.decrementAndGet();
+  }
+}
@@ -0,0 +1,167 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// represents one client's connection to a GameServer and the game it plays
+class GameSession implements Runnable {
+  // the size of the buffers of a connection, kept small since there may be
+  // thousands of them
+  static final int BUFFER_SIZE = 512;
+
+  GameServer server;
+  Socket socket;
+  // the game, or null until one is started, and the encoder of its changes
+  // for SYNC, or null until the first one
+  GameEngine engine;
+  DeltaEncoder sync;
+
+  // the constructor
+  GameSession(GameServer server, Socket socket) {
+    this.server = server;
+    this.socket = socket;
+    this.engine = null;
+    this.sync = null;
+  }
+
+  // EFFECT: answers the commands of the client until it quits or leaves
+  public void run() {
+    this.server.opened();
+    try (Socket socket = this.socket;
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+            StandardCharsets.US_ASCII), BUFFER_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+            StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+      String line = in.readLine();
+
+      while (line != null) {
+        String reply = this.handle(line);
+        this.server.commands.incrementAndGet();
+        out.write(reply);
+        out.write('\n');
+        out.flush();
+        line = reply.equals("BYE") ? null : in.readLine();
+      }
+    }
+    catch (IOException e) {
+      // the client went away
+    }
+    finally {
+      this.server.closed();
+    }
+  }
+
+  // EFFECT: carries out the given command line
+  // returns the reply to it
+  String handle(String line) {
+    String[] words = line.trim().split(" +");
+
+    try {
+      if (words[0].equals("NEW") && words.length == 4) {
+        return this.start(Integer.parseInt(words[1]), Integer.parseInt(words[2]),
+            Long.parseLong(words[3]));
+      }
+      else if (words[0].equals("QUIT") && words.length == 1) {
+        return "BYE";
+      }
+      else if (this.engine == null) {
+        return "ERROR No game";
+      }
+      else if (words[0].equals("ROTATE") && words.length == 3) {
+        return this.outcome(this.engine.rotate(Integer.parseInt(words[1]),
+            Integer.parseInt(words[2])));
+      }
+      else if (words[0].equals("MOVE") && words.length == 2) {
+        int direction = this.direction(words[1]);
+        return direction == 0 ? "ERROR Unknown direction " + words[1]
+            : this.outcome(this.engine.movePower(direction));
+      }
+      else if (words[0].equals("STATE") && words.length == 1) {
+        return this.state();
+      }
+      else if (words[0].equals("SYNC") && words.length == 1) {
+        return this.sync();
+      }
+      return "ERROR Unknown command " + line.trim();
+    }
+    catch (NumberFormatException e) {
+      return "ERROR Not a number";
+    }
+  }
+
+  // EFFECT: starts a game of the given size from the given seed, the same one
+  // a LightEmAll would start from a Random with that seed
+  // returns the reply to NEW
+  String start(int width, int height, long seed) {
+    if (width < 1 || height < 1 || (long) width * height > GameServer.MAX_CELLS) {
+      return "ERROR Bad size";
+    }
+    Random rand = new Random(seed);
+    Board board = new Board(height, width, rand);
+    board.randomRotate(rand);
+    this.engine = new GameEngine(board);
+    this.engine.changePower();
+    this.sync = null;
+    return "OK " + width + " " + height;
+  }
+
+  // the IGrid direction with the given name, or 0 if there is none
+  int direction(String name) {
+    if (name.equals("up")) {
+      return IGrid.TOP;
+    }
+    else if (name.equals("right")) {
+      return IGrid.RIGHT;
+    }
+    else if (name.equals("down")) {
+      return IGrid.BOTTOM;
+    }
+    else if (name.equals("left")) {
+      return IGrid.LEFT;
+    }
+    return 0;
+  }
+
+  // the reply to a rotation or move that was or was not made
+  String outcome(boolean made) {
+    return made ? "OK " + this.engine.poweredCount + " " + this.engine.isWon() : "NO";
+  }
+
+  // the reply to STATE
+  String state() {
+    IGrid cells = this.engine.board.cells;
+    StringBuilder reply = new StringBuilder(64 + 2 * cells.rows() * cells.cols());
+    reply.append("STATE ").append(cells.rows()).append(' ').append(cells.cols()).append(' ')
+        .append(this.engine.powerRow).append(' ').append(this.engine.powerCol).append(' ')
+        .append(this.engine.isWon()).append(' ');
+
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        int state = cells.state(row, col);
+        reply.append(Character.forDigit(state >> 4, 16)).append(Character.forDigit(state & 15, 16));
+      }
+    }
+    return reply.toString();
+  }
+
+  // EFFECT: takes the changes since the last SYNC
+  // returns the reply to SYNC
+  String sync() {
+    if (this.sync == null) {
+      this.sync = new DeltaEncoder(this.engine);
+    }
+    byte[] frame = this.sync.encode();
+    StringBuilder reply = new StringBuilder(5 + 2 * frame.length).append("SYNC ");
+
+    for (byte next : frame) {
+      reply.append(Character.forDigit(next >> 4 & 15, 16))
+          .append(Character.forDigit(next & 15, 16));
+    }
+    return reply.toString();
+  }
+}
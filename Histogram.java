@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// represents a histogram of non-negative values in fixed buckets: one bucket
+// for each value below 16, then eight buckets to each power of two, so that a
+// value is known to within an eighth of itself; it is safe to record into from
+// many threads at once
+class Histogram {
+  static final int SUB_BUCKETS = 8;
+  static final int BUCKETS = 16 + (63 - 4) * SUB_BUCKETS;
+
+  String name;
+  String unit;
+  AtomicLongArray counts;
+  AtomicLong count;
+  AtomicLong total;
+  AtomicLong max;
+
+  // the constructor
+  Histogram(String name, String unit) {
+    this.name = name;
+    this.unit = unit;
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new AtomicLong();
+    this.total = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  // the bucket the given value falls in
+  static int bucket(long value) {
+    if (value < 16) {
+      return (int) Math.max(value, 0);
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    return 16 + (exponent - 4) * SUB_BUCKETS + (int) ((value >>> (exponent - 3)) & 7);
+  }
+
+  // the largest value that falls in the given bucket
+  static long highest(int bucket) {
+    if (bucket < 16) {
+      return bucket;
+    }
+    int shift = (bucket - 16) / SUB_BUCKETS + 1;
+    long lowest = (long) (SUB_BUCKETS + (bucket - 16) % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  // EFFECT: records the given value
+  void record(long value) {
+    this.counts.incrementAndGet(bucket(value));
+    this.count.incrementAndGet();
+    this.total.addAndGet(value);
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  // EFFECT: records the given value if metrics are enabled
+  void add(long value) {
+    if (Metrics.enabled) {
+      this.record(value);
+    }
+  }
+
+  // EFFECT: records the nanoseconds since the given start, if it came from
+  // Metrics.start while metrics were enabled
+  void stop(long start) {
+    if (start != 0) {
+      this.record(System.nanoTime() - start);
+    }
+  }
+
+  // the mean of the values recorded, or 0 if there are none
+  double mean() {
+    long count = this.count.get();
+    return count == 0 ? 0 : (double) this.total.get() / count;
+  }
+
+  // the highest value of the bucket that the given fraction of the values
+  // recorded are at most, capped at the largest value recorded
+  long percentile(double fraction) {
+    long wanted = (long) Math.ceil(fraction * this.count.get());
+    long seen = 0;
+
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += this.counts.get(bucket);
+      if (seen >= wanted && seen > 0) {
+        return Math.min(highest(bucket), this.max.get());
+      }
+    }
+    return 0;
+  }
+
+  // EFFECT: forgets every value recorded
+  void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      this.counts.set(bucket, 0);
+    }
+    this.count.set(0);
+    this.total.set(0);
+    this.max.set(0);
+  }
+}
@@ -0,0 +1,55 @@
+// represents the cells of a Board, addressed by row and column
+interface IGrid {
+  int TOP = 1;
+  int RIGHT = 2;
+  int BOTTOM = 4;
+  int LEFT = 8;
+  int CONNECTORS = 15;
+  int STATION = 16;
+  int POWERED = 32;
+
+  // the number of rows in this grid
+  int rows();
+
+  // the number of columns in this grid
+  int cols();
+
+  // the connectors of the cell at the given position as a bitmask of
+  // TOP, RIGHT, BOTTOM and LEFT
+  int connectors(int row, int col);
+
+  // EFFECT: sets the connectors of the cell at the given position
+  void setConnectors(int row, int col, int mask);
+
+  // the state of the cell at the given position as a bitmask of its
+  // connectors, STATION and POWERED
+  int state(int row, int col);
+
+  // is the cell at the given position powered?
+  boolean isPowered(int row, int col);
+
+  // EFFECT: sets whether the cell at the given position is powered
+  void setPowered(int row, int col, boolean powered);
+
+  // is the cell at the given position the power station?
+  boolean isPowerStation(int row, int col);
+
+  // EFFECT: sets whether the cell at the given position is the power station
+  void setPowerStation(int row, int col, boolean powerStation);
+
+  // EFFECT: rotates the cell at the given position clockwise
+  void rotate(int row, int col);
+
+  // EFFECT: marks every cell in this grid as unpowered
+  void clearPowered();
+
+  // can threads set the powered flags of different cells at once, because
+  // every cell keeps its flag apart from the others?
+  boolean independentCells();
+
+  // the number of powered cells in this grid
+  long countPowered();
+
+  // a GamePiece holding the state of the cell at the given position
+  GamePiece pieceAt(int row, int col);
+}
@@ -0,0 +1,55 @@
+// represents a first-in first-out queue of ints kept in a ring buffer
+class IntQueue {
+  int[] items;
+  int head;
+  int size;
+
+  // the constructor, rounding the capacity up to a power of two
+  IntQueue(int capacity) {
+    this.items = new int[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // is this queue empty?
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: adds the given item to the back of this queue
+  void add(int item) {
+    if (this.size == this.items.length) {
+      this.grow();
+    }
+    this.items[(this.head + this.size) & (this.items.length - 1)] = item;
+    this.size++;
+  }
+
+  // EFFECT: removes and returns the item at the front of this queue
+  int remove() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Cannot remove from an empty queue");
+    }
+    int item = this.items[this.head];
+    this.head = (this.head + 1) & (this.items.length - 1);
+    this.size--;
+    return item;
+  }
+
+  // EFFECT: removes every item from this queue, keeping its buffer
+  void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // EFFECT: doubles the buffer of this queue, keeping the items in order
+  void grow() {
+    int[] bigger = new int[this.items.length * 2];
+
+    for (int i = 0; i < this.size; i++) {
+      bigger[i] = this.items[(this.head + i) & (this.items.length - 1)];
+    }
+    this.items = bigger;
+    this.head = 0;
+  }
+}
@@ -1,186 +1,87 @@
 import javalib.impworld.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javalib.worldimages.*;
 import tester.Tester;
 import java.awt.Color;
 
-// represents a GamePiece 
-class GamePiece {
-  int row;
-  int col;
-  boolean left;
-  boolean right;
-  boolean top;
-  boolean bottom;
-  boolean powerStation;
-  boolean powered;
-
-  // the constructor
-  GamePiece(int row, int col) {
-    this.row = row;
-    this.col = col;
-    this.left = false;
-    this.right = false;
-    this.top = false;
-    this.bottom = false;
-    this.powerStation = false;
-    this.powered = false;
-  }
-  
-  // the constructor for testing
-  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom,
-      boolean isPowered) {
-    this.row = row;
-    this.col = col;
-    this.left = left;
-    this.right = right;
-    this.top = top;
-    this.bottom = bottom;
-    this.powerStation = false;
-    this.powered = isPowered;
-  }
-
-  // the constructor for testing
-  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom) {
-    this.row = row;
-    this.col = col;
-    this.left = left;
-    this.right = right;
-    this.top = top;
-    this.bottom = bottom;
-    this.powerStation = false;
-    this.powered = false;
-  }
-
-  // EFFECT: rotates this GamePiece clockwise by 45 degrees
-  void rotate() {
-    boolean temp = this.top;
-    this.top = this.left;
-    this.left = this.bottom;
-    this.bottom = this.right;
-    this.right = temp;
-  }
-
-  // draws this cell
-  WorldImage draw() {
-    int size = 39;
-    WorldImage base = new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY);
-    Color lineColor = this.powered ? Color.YELLOW : Color.LIGHT_GRAY;
-    WorldImage upBorder = this.top ? new LineImage(new Posn(0, -size), lineColor)
-        : new EmptyImage();
-    WorldImage downBorder = this.bottom ? new LineImage(new Posn(0, size), lineColor)
-        : new EmptyImage();
-    WorldImage leftBorder = this.left ? new LineImage(new Posn(-size, 0), lineColor)
-        : new EmptyImage();
-    WorldImage rightBorder = this.right ? new LineImage(new Posn(size, 0), lineColor)
-        : new EmptyImage();
-    WorldImage pieceImage = new OverlayImage(upBorder, new OverlayImage(downBorder,
-        new OverlayImage(leftBorder, new OverlayImage(rightBorder, base))));
-
-    if (this.powerStation) {
-      WorldImage star = new StarImage(size / 2.5, OutlineMode.SOLID, Color.ORANGE);
-      pieceImage = new OverlayImage(star, pieceImage);
-    }
-
-    WorldImage border = new RectangleImage(size, size, OutlineMode.OUTLINE, Color.BLACK);
-    pieceImage = new OverlayImage(border, pieceImage);
-    return pieceImage;
-  }
-}
-
-// represents the base of the game
-class Board {
-  int rows;
-  int cols;
-  int powerRow;
-  int powerCol;
-  ArrayList<ArrayList<GamePiece>> board;
-
-  // the constructor
-  Board(int rows, int cols) {
-    this.rows = rows;
-    this.cols = cols;
-    this.powerRow = rows / 2;
-    this.powerCol = cols / 2;
-    this.board = new ArrayList<>();
-
-    for (int row = 0; row < this.rows; row++) {
-      ArrayList<GamePiece> current = new ArrayList<>();
-
-      for (int col = 0; col < this.cols; col++) {
-        GamePiece piece = new GamePiece(row, col);
-
-        if (row == this.powerRow) {
-          piece.left = piece.right = piece.top = piece.bottom = true;
-        }
-        else {
-          piece.left = piece.right = true;
-        }
-        current.add(piece);
-      }
-      this.board.add(current);
-    }
-
-    GamePiece powerStation = this.board.get(this.powerRow).get(this.powerCol);
-    powerStation.powerStation = true;
-  }
-
-  // the constructor for testing
-  Board(int rows, int cols, ArrayList<ArrayList<GamePiece>> board) {
-    this.rows = rows;
-    this.cols = cols;
-    this.powerRow = 0;
-    this.powerCol = 0;
-    this.board = board;
-  }
-
-  // EFFECT: rotates this GamePiece a random amount
-  void randomRotate(Random seed) {
-    for (ArrayList<GamePiece> row : this.board) {
-      for (GamePiece piece : row) {
-        int rotations = seed.nextInt(4);
-
-        for (int i = 0; i < rotations; i++) {
-          piece.rotate();
-        }
-      }
-    }
-  }
-}
-
 // represents the LightEmAll Game that draws the scene
 class LightEmAll extends World {
+  // the most rows and columns of tiles shown in the window at once
+  static final int VIEW_SIZE = 20;
+
   int width;
   int height;
   int powerRow;
   int powerCol;
   Random random;
+  // the seed the board was made from, if the game was started from one
+  long seed;
+  boolean seeded;
   boolean won;
   Board board;
-
-  // the constructor
+  // the rules of the game; powerRow, powerCol and won follow it
+  GameEngine engine;
+  // the last scene, how many images have been placed on it and whether the
+  // winner message is on top
+  WorldScene scene;
+  int placed;
+  boolean messageShown;
+  // the rows and columns of tiles shown in the window, and the first of each
+  int viewRows;
+  int viewCols;
+  int viewRow;
+  int viewCol;
+  // where the input is recorded, or null if it is not
+  EventLog log;
+  // the steps that can be undone, or null if undo is off
+  UndoHistory history;
+
+  // the constructor, for a game from a seed of its own picking
   LightEmAll(int width, int height) {
-    this.width = width;
-    this.height = height;
-    this.powerRow = height / 2;
-    this.powerCol = width / 2;
-    this.random = new Random();
-    this.won = false;
-    this.board = new Board(this.height, this.width);
-    this.board.randomRotate(this.random);
+    this(width, height, new Random().nextLong());
+  }
+
+  // the constructor for a game that can be recorded and replayed, made from a
+  // Random with the given seed
+  LightEmAll(int width, int height, long seed) {
+    this(width, height, new Random(seed));
+    this.seed = seed;
+    this.seeded = true;
   }
   
   // the constructor for a blank board
   LightEmAll(int width, int height, Board board) {
     this.width = width;
     this.height = height;
-    this.powerRow = 0;
-    this.powerCol = 0;
+    this.powerRow = board.powerRow;
+    this.powerCol = board.powerCol;
     this.random = new Random();
+    this.seed = 0;
+    this.seeded = false;
     this.won = false;
     this.board = board;
+    this.engine = new GameEngine(this.board);
+    this.scene = null;
+    this.placed = 0;
+    this.messageShown = false;
+    this.viewRows = Math.min(this.height, VIEW_SIZE);
+    this.viewCols = Math.min(this.width, VIEW_SIZE);
+    this.log = null;
+    this.history = null;
+    this.scrollTo(this.powerRow, this.powerCol);
   }
 
   // the constructor for Random
@@ -190,158 +91,312 @@ class LightEmAll extends World {
     this.powerRow = height / 2;
     this.powerCol = width / 2;
     this.random = seed;
+    this.seed = 0;
+    this.seeded = false;
     this.won = false;
-    this.board = new Board(this.height, this.width);
+    this.board = new Board(this.height, this.width, this.random);
     this.board.randomRotate(this.random);
+    this.engine = new GameEngine(this.board);
+    this.scene = null;
+    this.placed = 0;
+    this.messageShown = false;
+    this.viewRows = Math.min(this.height, VIEW_SIZE);
+    this.viewCols = Math.min(this.width, VIEW_SIZE);
+    this.log = null;
+    this.history = null;
+    this.scrollTo(this.powerRow, this.powerCol);
   }
 
-  // EFFECT: the power station is moved by one cell based on the key pressed
+  // EFFECT: the power station is moved by one cell based on the key pressed,
+  // or the view is panned with w, a, s and d
   public void onKeyEvent(String key) {
+    long start = Metrics.start();
+    long bytes = Metrics.allocated();
+    this.handleKey(key);
+    Metrics.finish(Metrics.KEY_EVENT, start, bytes);
+  }
+
+  // EFFECT: moves the power station or pans the view for the given key
+  void handleKey(String key) {
+    int step = Math.max(1, VIEW_SIZE / 4);
+
+    if (key.equals("w")) {
+      this.panTo(this.viewRow - step, this.viewCol);
+      return;
+    }
+    else if (key.equals("s")) {
+      this.panTo(this.viewRow + step, this.viewCol);
+      return;
+    }
+    else if (key.equals("a")) {
+      this.panTo(this.viewRow, this.viewCol - step);
+      return;
+    }
+    else if (key.equals("d")) {
+      this.panTo(this.viewRow, this.viewCol + step);
+      return;
+    }
+
     if (this.won) {
       return;
     }
-    int updatedPowerRow = this.powerRow;
-    int updatedPowerCol = this.powerCol;
+    if (key.equals("z") || key.equals("y")) {
+      this.undo(key.equals("z"));
+      return;
+    }
 
+    int direction = 0;
     if (key.equals("right")) {
-      updatedPowerCol++;
+      direction = IGrid.RIGHT;
     }
     else if (key.equals("left")) {
-      updatedPowerCol--;
+      direction = IGrid.LEFT;
     }
     else if (key.equals("up")) {
-      updatedPowerRow--;
+      direction = IGrid.TOP;
     }
     else if (key.equals("down")) {
-      updatedPowerRow++;
+      direction = IGrid.BOTTOM;
     }
 
-    if (this.allowedToMove(this.powerRow, this.powerCol, updatedPowerRow, updatedPowerCol)) {
-      this.board.board.get(this.powerRow).get(this.powerCol).powerStation = false;
-      this.powerCol = updatedPowerCol;
-      this.powerRow = updatedPowerRow;
-      this.board.board.get(this.powerRow).get(this.powerCol).powerStation = true;
-      this.changePower();
-      this.checkGameWon();
+    if (this.history != null ? this.history.move(direction) : this.engine.movePower(direction)) {
+      if (this.log != null) {
+        this.log.move(direction);
+      }
+      this.follow();
+
+      if (this.powerRow < this.viewRow || this.powerRow >= this.viewRow + this.viewRows
+          || this.powerCol < this.viewCol || this.powerCol >= this.viewCol + this.viewCols) {
+        this.scrollTo(this.powerRow, this.powerCol);
+      }
     }
   }
 
-  // checks whether the power station is allowed to move the desired coordinates
-  boolean allowedToMove(int cRow, int cCol, int desiredRow, int desiredCol) {
-    if (desiredRow < 0 || desiredRow >= this.height || desiredCol < 0 || desiredCol >= this.width) {
-      return false;
-    }
+  // EFFECT: brings the power station and the outcome of the game up to date
+  // with the engine
+  void follow() {
+    this.powerRow = this.engine.powerRow;
+    this.powerCol = this.engine.powerCol;
+    this.won = this.won || this.engine.won;
+  }
 
-    GamePiece cPiece = this.board.board.get(cRow).get(cCol);
-    GamePiece desiredPiece = this.board.board.get(desiredRow).get(desiredCol);
+  // EFFECT: centers the view on the given cell as far as the board allows
+  void scrollTo(int row, int col) {
+    this.panTo(row - this.viewRows / 2, col - this.viewCols / 2);
+  }
 
-    if (cRow < desiredRow) {
-      return cPiece.bottom && desiredPiece.top;
+  // EFFECT: moves the first row and column shown to the given ones, kept
+  // within the board, and redraws the scene if the view moved
+  void panTo(int row, int col) {
+    int maxRow = Math.max(0, Math.min(this.height, this.board.cells.rows()) - this.viewRows);
+    int maxCol = Math.max(0, Math.min(this.width, this.board.cells.cols()) - this.viewCols);
+    int updatedRow = Math.max(0, Math.min(row, maxRow));
+    int updatedCol = Math.max(0, Math.min(col, maxCol));
+
+    if (updatedRow != this.viewRow || updatedCol != this.viewCol) {
+      this.viewRow = updatedRow;
+      this.viewCol = updatedCol;
+      this.scene = null;
     }
-    else if (cRow > desiredRow) {
-      return cPiece.top && desiredPiece.bottom;
-    }
-    else if (cCol < desiredCol) {
-      return cPiece.right && desiredPiece.left;
-    }
-    else if (cCol > desiredCol) {
-      return cPiece.left && desiredPiece.right;
-    }
-    return false;
   }
 
   // EFFECT: rotates the specific GamePiece
   public void onMouseClicked(Posn pos, String button) {
+    long start = Metrics.start();
+    long bytes = Metrics.allocated();
+    this.handleClick(pos, button);
+    Metrics.finish(Metrics.MOUSE_CLICKED, start, bytes);
+  }
+
+  // EFFECT: rotates the GamePiece under the given position for a left click
+  void handleClick(Posn pos, String button) {
     if (this.won) {
       return;
     }
-    int col = pos.x / 39;
-    int row = pos.y / 39;
+    int col = this.viewCol + pos.x / 39;
+    int row = this.viewRow + pos.y / 39;
 
-    if (row >= 0 && row < this.height && col >= 0 && col < this.width
-        && button.equals("LeftButton")) {
-      GamePiece piece = this.board.board.get(row).get(col);
+    if (button.equals("LeftButton")) {
+      if (this.log != null) {
+        this.log.click(pos.x, pos.y);
+      }
+      if (this.history != null ? this.history.rotate(row, col) : this.engine.rotate(row, col)) {
+        if (this.log != null) {
+          this.log.rotate(row, col);
+        }
+        this.follow();
+      }
+    }
+  }
 
-      piece.rotate();
+  // EFFECT: applies the rotations and power moves of the given batch as if
+  // each were made in turn, recomputing the power only once
+  // returns the indices of the powered cells afterwards, in increasing order
+  int[] applyBatch(MoveBatch batch) {
+    if (this.log != null) {
+      // the ones the engine refuses are refused again when the log is replayed
+      for (int i = 0; i < batch.size; i++) {
+        if (batch.kinds[i] == MoveBatch.ROTATE) {
+          this.log.rotate(batch.firsts[i], batch.seconds[i]);
+        }
+        else {
+          this.log.move(batch.firsts[i]);
+        }
+      }
+    }
+    int[] powered = this.engine.apply(batch);
+    this.follow();
+    return powered;
+  }
 
-      this.checkGameWon();
-      this.changePower();
+  // EFFECT: records every click, rotation and power move from now on in an
+  // EventLog written to the given stream, headed by the size and seed of this
+  // game so that it can be replayed; the board must still be as it started,
+  // since a replay starts from the seed
+  // returns the log
+  EventLog record(OutputStream stream) throws IOException {
+    if (!this.seeded) {
+      throw new IllegalStateException("Only a game started from a seed can be recorded");
+    }
+    if (!this.atStart()) {
+      throw new IllegalStateException("Only a game that has not moved on can be recorded");
     }
+    this.log = new EventLog(stream, this.width, this.height, this.seed);
+    return this.log;
   }
 
-  // draws the LightEmAll game by placing the GamePieces on the Board
-  public WorldScene makeScene() {
-    WorldScene scene = new WorldScene(this.width * 39, this.height * 39);
+  // is the board as it was when this game was started from its seed?
+  boolean atStart() {
+    Random rand = new Random(this.seed);
+    Board start = new Board(this.height, this.width, rand);
+    start.randomRotate(rand);
 
+    if (start.powerRow != this.engine.powerRow || start.powerCol != this.engine.powerCol) {
+      return false;
+    }
     for (int row = 0; row < this.height; row++) {
       for (int col = 0; col < this.width; col++) {
-
-        GamePiece piece = this.board.board.get(row).get(col);
-        scene.placeImageXY(piece.draw(), (col * 39) + 20, (row * 39) + 20);
+        if (start.cells.connectors(row, col) != this.board.cells.connectors(row, col)) {
+          return false;
+        }
       }
     }
+    return true;
+  }
 
-    if (this.won) {
-      WorldImage winnerMessage = new TextImage("You Win!", 39, FontStyle.BOLD, Color.GREEN);
-      scene.placeImageXY(winnerMessage, (this.width * 39) / 2, (this.height * 39) / 2);
-    }
-    return scene;
+  // EFFECT: lets the rotations and power moves made from now on be undone
+  // with z and redone with y, keeping about the given number of bytes of them
+  void enableUndo(long budget) {
+    this.history = new UndoHistory(this.engine, budget);
   }
 
-  // EFFECT: changes the power connections between GamePieces
-  void changePower() {
-    for (ArrayList<GamePiece> row : this.board.board) {
-      for (GamePiece piece : row) {
-        piece.powered = false;
-      }
+  // EFFECT: undoes the last step if the given flag is set, or redoes the last
+  // step undone otherwise, recording the rotations or move that have the same
+  // effect
+  void undo(boolean back) {
+    if (this.history == null) {
+      return;
     }
+    long step = back ? this.history.position - 1 : this.history.position;
 
-    ArrayList<GamePiece> queue = new ArrayList<>();
+    if (back ? this.history.undo() : this.history.redo()) {
+      int made = this.history.stepAt(step);
 
-    GamePiece powerStation = this.board.board.get(this.powerRow).get(this.powerCol);
-    powerStation.powered = true;
-    queue.add(powerStation);
-
-    while (!queue.isEmpty()) {
-      GamePiece current = queue.remove(0);
-
-      if (current.top && current.row > 0
-          && this.board.board.get(current.row - 1).get(current.col).bottom
-          && !this.board.board.get(current.row - 1).get(current.col).powered) {
-        queue.add(this.board.board.get(current.row - 1).get(current.col));
-        this.board.board.get(current.row - 1).get(current.col).powered = true;
+      if (this.log != null && made >= 0) {
+        int cols = this.board.cells.cols();
+        for (int i = back ? 3 : 1; i > 0; i--) {
+          this.log.rotate(made / cols, made % cols);
+        }
       }
-      if (current.bottom && current.row < height - 1
-          && this.board.board.get(current.row + 1).get(current.col).top
-          && !this.board.board.get(current.row + 1).get(current.col).powered) {
-        queue.add(this.board.board.get(current.row + 1).get(current.col));
-        this.board.board.get(current.row + 1).get(current.col).powered = true;
+      else if (this.log != null) {
+        // the opposite direction is two bits over
+        this.log.move(back ? ((-made << 2) | (-made >> 2)) & IGrid.CONNECTORS : -made);
       }
-      if (current.left && current.col > 0
-          && this.board.board.get(current.row).get(current.col - 1).right
-          && !this.board.board.get(current.row).get(current.col - 1).powered) {
-        queue.add(this.board.board.get(current.row).get(current.col - 1));
-        this.board.board.get(current.row).get(current.col - 1).powered = true;
+      this.follow();
+    }
+  }
+
+  // checks whether the power station is allowed to move the desired coordinates
+  boolean allowedToMove(int cRow, int cCol, int desiredRow, int desiredCol) {
+    return this.engine.allowedToMove(cRow, cCol, desiredRow, desiredCol);
+  }
+
+  // draws the part of the LightEmAll game in view by placing its GamePieces,
+  // reusing the last scene and redrawing only the cells that changed since
+  public WorldScene makeScene() {
+    long start = Metrics.start();
+    long bytes = Metrics.allocated();
+    WorldScene scene = this.drawScene();
+    Metrics.finish(Metrics.MAKE_SCENE, start, bytes);
+    return scene;
+  }
+
+  // the scene of the part of the game in view, drawn over the last one where
+  // only some of its cells changed
+  WorldScene drawScene() {
+    IGrid cells = this.board.cells;
+    int lastRow = Math.min(this.viewRow + this.viewRows, Math.min(this.height, cells.rows()));
+    int lastCol = Math.min(this.viewCol + this.viewCols, Math.min(this.width, cells.cols()));
+    int before = this.placed;
+
+    // every placed image stays in the scene, so start over once the redrawn
+    // tiles outnumber the view
+    if (this.scene == null || this.engine.changed.all
+        || this.placed + this.engine.changed.size > 2 * this.viewRows * this.viewCols) {
+      this.scene = new WorldScene(this.viewCols * 39, this.viewRows * 39);
+      this.placed = 0;
+      before = -1;
+
+      for (int row = this.viewRow; row < lastRow; row++) {
+        for (int col = this.viewCol; col < lastCol; col++) {
+          this.drawCell(row, col);
+        }
       }
-      if (current.right && current.col < width - 1
-          && this.board.board.get(current.row).get(current.col + 1).left
-          && !this.board.board.get(current.row).get(current.col + 1).powered) {
-        queue.add(this.board.board.get(current.row).get(current.col + 1));
-        this.board.board.get(current.row).get(current.col + 1).powered = true;
+    }
+    else {
+      for (int i = 0; i < this.engine.changed.size; i++) {
+        int cell = this.engine.changed.items[i];
+        int row = cell / cells.cols();
+        int col = cell % cells.cols();
+
+        if (row >= this.viewRow && row < lastRow && col >= this.viewCol && col < lastCol) {
+          this.drawCell(row, col);
+        }
       }
     }
+    this.engine.changed.clear();
+    Metrics.TILES_DRAWN.add(before < 0 ? this.placed : this.placed - before);
+
+    if (this.placed != before) {
+      this.messageShown = false;
+    }
+    if (this.won && !this.messageShown) {
+      WorldImage winnerMessage = new TextImage("You Win!", 39, FontStyle.BOLD, Color.GREEN);
+      this.scene.placeImageXY(winnerMessage, (this.viewCols * 39) / 2, (this.viewRows * 39) / 2);
+      this.placed++;
+      this.messageShown = true;
+    }
+    return this.scene;
+  }
+
+  // EFFECT: places the image of the cell at the given position on the scene,
+  // relative to the view
+  void drawCell(int row, int col) {
+    WorldImage tile = TileAtlas.tile(this.board.cells.state(row, col));
+    this.scene.placeImageXY(tile, ((col - this.viewCol) * 39) + 20,
+        ((row - this.viewRow) * 39) + 20);
+    this.placed++;
+  }
+
+  // EFFECT: changes the power connections between GamePieces
+  void changePower() {
+    this.engine.changePower();
   }
 
   // EFFECT: checks if the user has finished the game
   void checkGameWon() {
-    for (ArrayList<GamePiece> row : this.board.board) {
-      for (GamePiece piece : row) {
-        if (!piece.powered) {
-          return;
-        }
-      }
-    }
-    this.won = true;
+    this.engine.checkGameWon();
+    this.follow();
   }
 }
 
@@ -1556,6 +1611,24 @@ class ExamplesLightEmAll {
         new RectangleImage(cellSize, cellSize, OutlineMode.OUTLINE, Color.BLACK), this.rightCell));
   }
 
+  // tests the TileAtlas class
+  void testTileAtlas(Tester t) {
+    this.initCond();
+
+    t.checkExpect(this.leftTopBottomRightStation.state(), 63);
+    t.checkExpect(this.topRight.state(), IGrid.TOP | IGrid.RIGHT);
+    t.checkExpect(TileAtlas.tile(IGrid.LEFT), new OverlayImage(
+        new RectangleImage(cellSize, cellSize, OutlineMode.OUTLINE, Color.BLACK), this.leftCell));
+    t.checkExpect(TileAtlas.tile(IGrid.TOP | IGrid.BOTTOM | IGrid.POWERED), new OverlayImage(
+        new RectangleImage(cellSize, cellSize, OutlineMode.OUTLINE, Color.BLACK),
+        this.topBottomCellPowered));
+    t.checkExpect(TileAtlas.tile(63), new OverlayImage(
+        new RectangleImage(cellSize, cellSize, OutlineMode.OUTLINE, Color.BLACK),
+        this.leftTopBottomRightCellStationCell));
+    t.checkExpect(TileAtlas.tile(IGrid.LEFT) == TileAtlas.tile(IGrid.LEFT), true);
+    t.checkExpect(this.left.draw() == this.leftPowered.draw(), false);
+  }
+
   // tests the randomRotate method in the Board class
   void testRandomRotate(Tester t) {
     this.initCond();
@@ -1642,6 +1715,196 @@ class ExamplesLightEmAll {
     t.checkExpect(this.game1x1Powered.makeScene(), this.initialScene1x1Final);
   }
 
+  // tests that makeScene reuses the last scene and only redraws changed cells
+  void testMakeSceneDirty(Tester t) {
+    this.initCond();
+
+    LightEmAll game = new LightEmAll(3, 3, new Random(7));
+    WorldScene first = game.makeScene();
+    t.checkExpect(game.placed, 9);
+    t.checkExpect(game.makeScene() == first, true);
+    t.checkExpect(game.placed, 9);
+
+    game.changePower();
+    t.checkExpect(game.engine.changed.all, true);
+    t.checkExpect(game.makeScene() == first, false);
+    t.checkExpect(game.placed, 9);
+
+    WorldScene second = game.makeScene();
+    game.engine.rotatePiece(0, 0);
+    t.checkExpect(game.engine.changed.contains(0), true);
+    int changed = game.engine.changed.size;
+    t.checkExpect(game.makeScene() == second, true);
+    t.checkExpect(game.placed, 9 + changed);
+    t.checkExpect(game.engine.changed.isEmpty(), true);
+  }
+
+  // tests the view of a board larger than the window
+  void testView(Tester t) {
+    LightEmAll game = new LightEmAll(100, 60, new Random(3));
+
+    t.checkExpect(game.viewRows, LightEmAll.VIEW_SIZE);
+    t.checkExpect(game.viewCols, LightEmAll.VIEW_SIZE);
+    t.checkExpect(game.viewRow, 30 - LightEmAll.VIEW_SIZE / 2);
+    t.checkExpect(game.viewCol, 50 - LightEmAll.VIEW_SIZE / 2);
+
+    game.makeScene();
+    t.checkExpect(game.placed, LightEmAll.VIEW_SIZE * LightEmAll.VIEW_SIZE);
+
+    game.panTo(-5, 1000);
+    t.checkExpect(game.viewRow, 0);
+    t.checkExpect(game.viewCol, 100 - LightEmAll.VIEW_SIZE);
+    t.checkExpect(game.scene, null);
+
+    game.onKeyEvent("s");
+    t.checkExpect(game.viewRow, LightEmAll.VIEW_SIZE / 4);
+    game.onKeyEvent("a");
+    t.checkExpect(game.viewCol, 100 - LightEmAll.VIEW_SIZE - LightEmAll.VIEW_SIZE / 4);
+
+    int connectors = game.board.cells.connectors(game.viewRow + 1, game.viewCol + 2);
+    game.onMouseClicked(new Posn(2 * 39 + 5, 1 * 39 + 5), "LeftButton");
+    t.checkExpect(game.board.cells.connectors(game.viewRow + 1, game.viewCol + 2),
+        PackedGrid.rotateMask(connectors));
+
+    LightEmAll small = new LightEmAll(3, 2, new Random(3));
+    t.checkExpect(small.viewRows, 2);
+    t.checkExpect(small.viewCols, 3);
+    t.checkExpect(small.viewRow, 0);
+    t.checkExpect(small.viewCol, 0);
+  }
+
+  // tests the rotation table of PackedGrid and scrambling with it
+  void testTurnTable(Tester t) {
+    for (int mask = 0; mask < 16; mask++) {
+      int turned = mask;
+      for (int turns = 0; turns < 4; turns++) {
+        t.checkExpect(PackedGrid.turn(mask, turns), turned);
+        GamePiece piece = new GamePiece(0, 0);
+        piece.setConnectors(turned);
+        piece.rotate();
+        turned = piece.connectors();
+      }
+      t.checkExpect(PackedGrid.rotateMask(mask), PackedGrid.turn(mask, 1));
+      t.checkExpect(PackedGrid.turn(mask | IGrid.STATION, 2), PackedGrid.turn(mask, 2));
+    }
+
+    // scrambling draws the same numbers and turns the same cells as rotating
+    // each cell one step at a time did
+    for (int seed = 0; seed < 5; seed++) {
+      Board packed = new Board(9, 13, new Random(seed));
+      Board rotated = new Board(9, 13, new Random(seed));
+      Random rand = new Random(seed + 100);
+      for (int row = 0; row < 9; row++) {
+        for (int col = 0; col < 13; col++) {
+          for (int turns = rand.nextInt(4); turns > 0; turns--) {
+            rotated.cells.rotate(row, col);
+          }
+        }
+      }
+      packed.randomRotate(new Random(seed + 100));
+      t.checkExpect(packed.cells, rotated.cells);
+
+      Board pieces = Benchmarks.pieces(new Board(9, 13, new Random(seed)));
+      pieces.randomRotate(new Random(seed + 100));
+      for (int row = 0; row < 9; row++) {
+        for (int col = 0; col < 13; col++) {
+          t.checkExpect(pieces.cells.state(row, col), packed.cells.state(row, col));
+        }
+      }
+    }
+  }
+
+  // tests that a seeded scramble turns every cell by turnsAt, the same way on
+  // any pool and on either backend
+  void testSeededScramble(Tester t) {
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool three = new ForkJoinPool(3);
+    int[] counts = new int[4];
+
+    for (int seed = 0; seed < 6; seed++) {
+      int rows = 1 + seed * 97;
+      int cols = 1 + (seed * 389) % 700;
+      Board solved = new Board(rows, cols, new Random(seed));
+      Board single = new Board(rows, cols, new Random(seed));
+      Board parallel = new Board(rows, cols, new Random(seed));
+      single.randomRotate(seed, one);
+      parallel.randomRotate(seed, three);
+      t.checkExpect(parallel.cells, single.cells);
+
+      for (int row = 0; row < rows; row += 1 + rows / 7) {
+        for (int col = 0; col < cols; col += 1 + cols / 7) {
+          int turns = PackedGrid.turnsAt(seed, (long) row * cols + col);
+          t.checkExpect(single.cells.state(row, col),
+              PackedGrid.turn(solved.cells.connectors(row, col), turns)
+                  | (solved.cells.state(row, col) & ~IGrid.CONNECTORS));
+        }
+      }
+
+      Board pieces = Benchmarks.pieces(new Board(Math.min(rows, 20), Math.min(cols, 20),
+          new Random(seed)));
+      Board packed = new Board(Math.min(rows, 20), Math.min(cols, 20), new Random(seed));
+      pieces.randomRotate(seed, three);
+      packed.randomRotate(seed, three);
+      for (int row = 0; row < packed.cells.rows(); row++) {
+        for (int col = 0; col < packed.cells.cols(); col++) {
+          t.checkExpect(pieces.cells.state(row, col), packed.cells.state(row, col));
+        }
+      }
+    }
+
+    // the turns are spread evenly and differ from seed to seed
+    for (int cell = 0; cell < 40000; cell++) {
+      counts[PackedGrid.turnsAt(7, cell)]++;
+    }
+    for (int turns = 0; turns < 4; turns++) {
+      t.checkExpect(Math.abs(counts[turns] - 10000) < 400, true);
+    }
+    int same = 0;
+    for (int cell = 0; cell < 1000; cell++) {
+      same += PackedGrid.turnsAt(7, cell) == PackedGrid.turnsAt(8, cell) ? 1 : 0;
+    }
+    t.checkExpect(same > 200 && same < 300, true);
+
+    one.shutdown();
+    three.shutdown();
+  }
+
+  // tests the CellSet class
+  void testCellSet(Tester t) {
+    CellSet set = new CellSet();
+
+    t.checkExpect(set.isEmpty(), true);
+    set.add(3);
+    set.add(70);
+    set.add(3);
+    t.checkExpect(set.size, 2);
+    t.checkExpect(set.contains(70), true);
+    t.checkExpect(set.contains(4), false);
+    t.checkExpect(set.contains(1000), false);
+
+    set.clear();
+    t.checkExpect(set.isEmpty(), true);
+    t.checkExpect(set.contains(3), false);
+
+    set.addAll();
+    t.checkExpect(set.isEmpty(), false);
+    t.checkExpect(set.contains(1000), true);
+  }
+
+  // tests the CellInts class
+  void testCellInts(Tester t) {
+    CellInts ints = new CellInts();
+
+    t.checkExpect(ints.get(5), 0);
+    ints.set(5, 7);
+    ints.set(200000, -2);
+    t.checkExpect(ints.get(5), 7);
+    t.checkExpect(ints.get(200000), -2);
+    t.checkExpect(ints.get(70000), 0);
+    t.checkExpect(ints.pages.length, 4);
+    t.checkExpect(ints.pages[1], null);
+  }
+
   // tests the changePower method in the LightEmAll class
   void testChangePower(Tester t) {
     this.initCond();
@@ -1691,14 +1954,1440 @@ class ExamplesLightEmAll {
     t.checkExpect(this.gamePowered.won, true);
   }
 
+  // tests the DisjointSet class
+  void testDisjointSet(Tester t) {
+    DisjointSet sets = new DisjointSet(5);
+
+    t.checkExpect(sets.find(3), 3);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(2, 3), true);
+    t.checkExpect(sets.union(1, 0), false);
+    t.checkExpect(sets.union(1, 3), true);
+    t.checkExpect(sets.find(0) == sets.find(2), true);
+    t.checkExpect(sets.find(0) == sets.find(4), false);
+    t.checkExpect(sets.union(3, 0), false);
+  }
+
+  // tests the spanning tree constructor of the Board class
+  void testBoardSpanningTree(Tester t) {
+    for (int seed = 0; seed < 10; seed++) {
+      Board board = new Board(7 + seed, 12 - seed, new Random(seed));
+      IGrid cells = board.cells;
+      LightEmAll game = new LightEmAll(12 - seed, 7 + seed, board);
+      int ends = 0;
+
+      for (int row = 0; row < cells.rows(); row++) {
+        for (int col = 0; col < cells.cols(); col++) {
+          ends += Integer.bitCount(cells.connectors(row, col));
+          t.checkExpect(row == 0 && (cells.connectors(row, col) & IGrid.TOP) != 0, false);
+          t.checkExpect(col == 0 && (cells.connectors(row, col) & IGrid.LEFT) != 0, false);
+        }
+      }
+
+      // a tree over every cell has one fewer wire than cells, and reaches them all
+      game.changePower();
+      t.checkExpect(ends, 2 * (cells.rows() * cells.cols() - 1));
+      t.checkExpect(game.engine.poweredCount, cells.rows() * cells.cols());
+      t.checkExpect(cells.isPowerStation(board.powerRow, board.powerCol), true);
+    }
+
+    t.checkExpect(new Board(6, 9, new Random(4)), new Board(6, 9, new Random(4)));
+    t.checkExpect(new Board(1, 1, new Random(4)).cells.connectors(0, 0), 0);
+  }
+
+  // the powered game for the given board, with power spread from its station
+  LightEmAll poweredGame(Board board) {
+    LightEmAll game = new LightEmAll(board.cells.cols(), board.cells.rows(), board);
+    game.changePower();
+    return game;
+  }
+
+  // tests the EllerGenerator class and reading back what it writes
+  void testEllerGenerator(Tester t) {
+    try {
+      for (int seed = 0; seed < 10; seed++) {
+        int rows = 1 + seed;
+        int cols = 11 - seed;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EllerGenerator(rows, cols, seed, false).writeTo(out);
+        t.checkExpect((long) out.size(),
+            BoardFile.HEADER_SIZE + BoardFile.cellBytes(rows, cols));
+
+        Board board = BoardFile.read(new ByteArrayInputStream(out.toByteArray()));
+        t.checkExpect(board.cells.rows(), rows);
+        t.checkExpect(board.cells.cols(), cols);
+        t.checkExpect(board.powerRow, rows / 2);
+        t.checkExpect(board.cells.isPowerStation(rows / 2, cols / 2), true);
+
+        // a tree over every cell has one fewer wire than cells, and reaches them all
+        int ends = 0;
+        for (int row = 0; row < rows; row++) {
+          for (int col = 0; col < cols; col++) {
+            ends += Integer.bitCount(board.cells.connectors(row, col));
+          }
+        }
+        t.checkExpect(ends, 2 * (rows * cols - 1));
+        t.checkExpect(this.poweredGame(board).engine.poweredCount, rows * cols);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        new EllerGenerator(rows, cols, seed, true).writeTo(first);
+        new EllerGenerator(rows, cols, seed, true).writeTo(second);
+        t.checkExpect(first.toByteArray(), second.toByteArray());
+      }
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    t.checkConstructorException(
+        new IllegalArgumentException("A board needs at least one row and column"),
+        "EllerGenerator", 0, 4, 1L, false);
+  }
+
+  // tests saving a board and mapping it back in
+  void testMappedGrid(Tester t) {
+    try {
+      java.io.File file = java.io.File.createTempFile("board", ".lem");
+      file.deleteOnExit();
+
+      Board board = new Board(5, 7, new Random(11));
+      board.randomRotate(new Random(12));
+      BoardFile.write(board, 11, file.getPath());
+      t.checkExpect(file.length(), BoardFile.HEADER_SIZE + BoardFile.cellBytes(5, 7));
+
+      Board mapped = BoardFile.map(file.getPath());
+      t.checkExpect(mapped.powerRow, 2);
+      t.checkExpect(mapped.powerCol, 3);
+      for (int row = 0; row < 5; row++) {
+        for (int col = 0; col < 7; col++) {
+          t.checkExpect(mapped.cells.state(row, col), board.cells.state(row, col));
+        }
+      }
+
+      LightEmAll game = this.poweredGame(mapped);
+      LightEmAll packed = this.poweredGame(board);
+      t.checkExpect(this.currentPower(game), this.currentPower(packed));
+      t.checkExpect(game.engine.poweredCount, packed.engine.poweredCount);
+      t.checkExpect(mapped.cells.countPowered(), (long) packed.engine.poweredCount);
+
+      // rotations stay in memory and never reach the file
+      game.engine.rotatePiece(4, 6);
+      t.checkExpect(mapped.cells.connectors(4, 6),
+          PackedGrid.rotateMask(board.cells.connectors(4, 6)));
+      t.checkExpect(BoardFile.map(file.getPath()).cells.connectors(4, 6),
+          board.cells.connectors(4, 6));
+
+      mapped.cells.clearPowered();
+      t.checkExpect(mapped.cells.countPowered(), 0L);
+      mapped.cells.setPowerStation(0, 0, true);
+      t.checkExpect(mapped.cells.isPowerStation(2, 3), false);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+  }
+
+  // tests playing the last cells of the largest board that can be mapped, and
+  // refusing a board with one cell more
+  void testMappedGridLimit(Tester t) {
+    int cols = Integer.MAX_VALUE / 2;
+
+    try {
+      java.io.File file = java.io.File.createTempFile("board", ".lem");
+      file.deleteOnExit();
+
+      // an empty board but for the station next to the last cell, with the
+      // last cell one turn away from joining it
+      try (java.io.DataOutputStream out = new java.io.DataOutputStream(
+          new java.io.FileOutputStream(file))) {
+        BoardFile.writeHeader(out, 2, cols, 1, cols - 2, 0);
+      }
+      try (java.io.RandomAccessFile out = new java.io.RandomAccessFile(file, "rw")) {
+        out.setLength(BoardFile.HEADER_SIZE + BoardFile.cellBytes(2, cols));
+        out.seek(BoardFile.HEADER_SIZE + BoardFile.cellBytes(2, cols) - 1);
+        out.writeByte(IGrid.RIGHT | IGrid.BOTTOM << 4);
+      }
+
+      GameEngine engine = new GameEngine(BoardFile.map(file.getPath()));
+      t.checkExpect(engine.rotate(1, cols - 1), true);
+      t.checkExpect(engine.isPowered(1, cols - 1), true);
+      t.checkExpect(engine.poweredCount, 2);
+      t.checkExpect(engine.poweredCells[1], 2 * cols - 1);
+
+      t.checkExpect(engine.rotate(1, cols - 1), true);
+      t.checkExpect(engine.isPowered(1, cols - 1), false);
+      t.checkExpect(engine.poweredCount, 1);
+      engine.turnPiece(1, cols - 1, 3);
+      t.checkExpect(engine.isPowered(1, cols - 1), true);
+      t.checkExpect(engine.poweredCount, engine.countPowered());
+
+      try (java.io.DataOutputStream out = new java.io.DataOutputStream(
+          new java.io.FileOutputStream(file))) {
+        BoardFile.writeHeader(out, 2, cols + 1, 1, cols - 2, 0);
+      }
+      t.checkException(new IOException("Board file has more cells than can be played"),
+          new BoardFile(), "map", file.getPath());
+      file.delete();
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+  }
+
+  // tests the PackedGrid class
+  void testPackedGrid(Tester t) {
+    PackedGrid grid = new PackedGrid(2, 3);
+
+    t.checkExpect(grid.rows(), 2);
+    t.checkExpect(grid.cols(), 3);
+    t.checkExpect(grid.cells.length, 6);
+
+    grid.setConnectors(1, 2, IGrid.LEFT | IGrid.TOP);
+    t.checkExpect(grid.connectors(1, 2), IGrid.LEFT | IGrid.TOP);
+    t.checkExpect(grid.connectors(0, 0), 0);
+
+    grid.rotate(1, 2);
+    t.checkExpect(grid.connectors(1, 2), IGrid.TOP | IGrid.RIGHT);
+
+    grid.setPowered(1, 2, true);
+    grid.setPowerStation(1, 2, true);
+    t.checkExpect(grid.isPowered(1, 2), true);
+    t.checkExpect(grid.isPowerStation(1, 2), true);
+    t.checkExpect(grid.connectors(1, 2), IGrid.TOP | IGrid.RIGHT);
+
+    GamePiece piece = new GamePiece(1, 2, false, true, true, false, true);
+    piece.powerStation = true;
+    t.checkExpect(grid.pieceAt(1, 2), piece);
+
+    grid.clearPowered();
+    t.checkExpect(grid.isPowered(1, 2), false);
+    t.checkExpect(grid.isPowerStation(1, 2), true);
+  }
+
+  // tests the PieceGrid class
+  void testPieceGrid(Tester t) {
+    this.initCond();
+
+    IGrid grid = this.boardInitial.cells;
+
+    t.checkExpect(grid.rows(), 9);
+    t.checkExpect(grid.cols(), 8);
+    t.checkExpect(grid.connectors(0, 1), IGrid.LEFT | IGrid.TOP);
+    t.checkExpect(grid.pieceAt(0, 1), this.p1);
+
+    grid.rotate(0, 1);
+    t.checkExpect(this.p1.top, true);
+    t.checkExpect(this.p1.right, true);
+    t.checkExpect(this.p1.left, false);
+  }
+
+  // tests the packed constructor of the Board class
+  void testBoardPacked(Tester t) {
+    Board board = new Board(3, 4);
+
+    t.checkExpect(board.board, null);
+    t.checkExpect(board.cells.connectors(0, 0), IGrid.LEFT | IGrid.RIGHT);
+    t.checkExpect(board.cells.connectors(1, 3),
+        IGrid.LEFT | IGrid.RIGHT | IGrid.TOP | IGrid.BOTTOM);
+    t.checkExpect(board.cells.isPowerStation(1, 2), true);
+    t.checkExpect(board.cells.isPowerStation(1, 1), false);
+  }
+
+  // tests the IntQueue class
+  void testIntQueue(Tester t) {
+    IntQueue queue = new IntQueue(2);
+
+    t.checkExpect(queue.isEmpty(), true);
+    t.checkException(new IllegalStateException("Cannot remove from an empty queue"), queue,
+        "remove");
+
+    queue.add(1);
+    queue.add(2);
+    t.checkExpect(queue.remove(), 1);
+    queue.add(3);
+    queue.add(4);
+    queue.add(5);
+    t.checkExpect(queue.items.length, 4);
+    t.checkExpect(queue.remove(), 2);
+    t.checkExpect(queue.remove(), 3);
+    t.checkExpect(queue.remove(), 4);
+    t.checkExpect(queue.remove(), 5);
+    t.checkExpect(queue.isEmpty(), true);
+
+    queue.add(6);
+    queue.clear();
+    t.checkExpect(queue.isEmpty(), true);
+  }
+
+  // the powered flags of the given game as computed by the original list-based
+  // breadth-first search over copies of its GamePieces
+  boolean[][] referencePower(LightEmAll game) {
+    IGrid cells = game.board.cells;
+    ArrayList<ArrayList<GamePiece>> board = new ArrayList<>();
+
+    for (int row = 0; row < cells.rows(); row++) {
+      ArrayList<GamePiece> current = new ArrayList<>();
+      for (int col = 0; col < cells.cols(); col++) {
+        GamePiece piece = cells.pieceAt(row, col);
+        piece.powered = false;
+        current.add(piece);
+      }
+      board.add(current);
+    }
+
+    ArrayList<GamePiece> queue = new ArrayList<>();
+    GamePiece powerStation = board.get(game.powerRow).get(game.powerCol);
+    powerStation.powered = true;
+    queue.add(powerStation);
+
+    while (!queue.isEmpty()) {
+      GamePiece current = queue.remove(0);
+      ArrayList<GamePiece> neighbors = new ArrayList<>();
+
+      if (current.top && current.row > 0 && board.get(current.row - 1).get(current.col).bottom) {
+        neighbors.add(board.get(current.row - 1).get(current.col));
+      }
+      if (current.bottom && current.row < cells.rows() - 1
+          && board.get(current.row + 1).get(current.col).top) {
+        neighbors.add(board.get(current.row + 1).get(current.col));
+      }
+      if (current.left && current.col > 0 && board.get(current.row).get(current.col - 1).right) {
+        neighbors.add(board.get(current.row).get(current.col - 1));
+      }
+      if (current.right && current.col < cells.cols() - 1
+          && board.get(current.row).get(current.col + 1).left) {
+        neighbors.add(board.get(current.row).get(current.col + 1));
+      }
+      for (GamePiece next : neighbors) {
+        if (!next.powered) {
+          next.powered = true;
+          queue.add(next);
+        }
+      }
+    }
+
+    boolean[][] powered = new boolean[cells.rows()][cells.cols()];
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        powered[row][col] = board.get(row).get(col).powered;
+      }
+    }
+    return powered;
+  }
+
+  // the powered flags of the given game as currently stored in its grid
+  boolean[][] currentPower(LightEmAll game) {
+    IGrid cells = game.board.cells;
+    boolean[][] powered = new boolean[cells.rows()][cells.cols()];
+
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        powered[row][col] = cells.isPowered(row, col);
+      }
+    }
+    return powered;
+  }
+
+  // tests that changePower powers the same cells as the original implementation
+  // on random seeded boards
+  void testChangePowerMatchesReference(Tester t) {
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(3 + rand.nextInt(20), 3 + rand.nextInt(20), rand);
+
+      for (int click = 0; click < 50; click++) {
+        game.board.cells.rotate(rand.nextInt(game.height), rand.nextInt(game.width));
+        game.changePower();
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+      }
+    }
+  }
+
+  // tests that the ParallelPowerEngine powers the same cells as the original
+  // implementation, whatever the height of its strips
+  void testParallelPowerEngine(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(3);
+
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(3 + rand.nextInt(40), 3 + rand.nextInt(40), rand);
+      game.engine = new ParallelPowerEngine(game.board, pool, 1 + seed % 7);
+
+      for (int click = 0; click < 20; click++) {
+        game.board.cells.rotate(rand.nextInt(game.height), rand.nextInt(game.width));
+        game.changePower();
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+        t.checkExpect(game.engine.poweredCount, this.countPowered(this.referencePower(game)));
+      }
+
+      // rotations after a full recompute are still kept up to date
+      game.engine.rotatePiece(rand.nextInt(game.height), rand.nextInt(game.width));
+      t.checkExpect(this.currentPower(game), this.referencePower(game));
+    }
+
+    // an unscrambled tree is powered everywhere, across every strip
+    Board tree = new Board(50, 30, new Random(4));
+    ParallelPowerEngine engine = new ParallelPowerEngine(tree, pool, 8);
+    engine.changePower();
+    t.checkExpect(engine.poweredCount, 1500);
+    t.checkExpect(engine.stripCells.length, 7);
+    engine.checkGameWon();
+    t.checkExpect(engine.isWon(), true);
+
+    // strips of a mapped board share words and pages of powered flags, which
+    // are only set from one thread
+    try {
+      java.io.File file = java.io.File.createTempFile("board", ".lem");
+      file.deleteOnExit();
+      Board board = new Board(37, 75, new Random(9));
+      board.randomRotate(new Random(10));
+      BoardFile.write(board, 9, file.getPath());
+      Board mapped = BoardFile.map(file.getPath());
+      t.checkExpect(mapped.cells.independentCells(), false);
+      t.checkExpect(board.cells.independentCells(), true);
+
+      Random rand = new Random(11);
+      for (int stripRows = 1; stripRows <= 5; stripRows++) {
+        ParallelPowerEngine parallel = new ParallelPowerEngine(mapped, pool, stripRows);
+        GameEngine single = new GameEngine(board);
+        for (int click = 0; click < 10; click++) {
+          int row = rand.nextInt(37);
+          int col = rand.nextInt(75);
+          mapped.cells.rotate(row, col);
+          board.cells.rotate(row, col);
+          parallel.changePower();
+          single.changePower();
+          t.checkExpect(mapped.cells.countPowered(), (long) single.poweredCount);
+          t.checkExpect(parallel.poweredCount, single.poweredCount);
+          boolean[] mappedPower = new boolean[37 * 75];
+          boolean[] packedPower = new boolean[37 * 75];
+          for (int cell = 0; cell < 37 * 75; cell++) {
+            mappedPower[cell] = mapped.cells.isPowered(cell / 75, cell % 75);
+            packedPower[cell] = board.cells.isPowered(cell / 75, cell % 75);
+          }
+          t.checkExpect(mappedPower, packedPower);
+        }
+      }
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    t.checkConstructorException(new IllegalArgumentException("A strip needs at least one row"),
+        "ParallelPowerEngine", new Board(2, 2), pool, 0);
+    pool.shutdown();
+  }
+
+  // EFFECT: applies the moves of the given batch to the given game one at a
+  // time, as the mouse and keyboard would
+  // returns the indices of the powered cells afterwards, in increasing order
+  int[] applyOneByOne(LightEmAll game, MoveBatch batch) {
+    for (int i = 0; i < batch.size; i++) {
+      if (batch.kinds[i] == MoveBatch.ROTATE) {
+        game.engine.rotate(batch.firsts[i], batch.seconds[i]);
+      }
+      else {
+        game.engine.movePower(batch.firsts[i]);
+      }
+    }
+    if (!game.engine.powerKnown) {
+      game.engine.changePower();
+    }
+    game.follow();
+    int[] powered = Arrays.copyOf(game.engine.poweredCells, game.engine.poweredCount);
+    Arrays.sort(powered);
+    return powered;
+  }
+
+  // tests that applying a MoveBatch leaves a game just as applying its moves
+  // one at a time does
+  void testApplyBatch(Tester t) {
+    int[] directions = { IGrid.TOP, IGrid.RIGHT, IGrid.BOTTOM, IGrid.LEFT };
+
+    for (int seed = 0; seed < 30; seed++) {
+      Random rand = new Random(seed);
+      int width = 2 + rand.nextInt(15);
+      int height = 2 + rand.nextInt(15);
+      LightEmAll batched = new LightEmAll(width, height, new Random(seed));
+      LightEmAll single = new LightEmAll(width, height, new Random(seed));
+      if (seed % 3 == 0) {
+        batched.engine = new BitplaneEngine(batched.board);
+      }
+
+      for (int round = 0; round < 5; round++) {
+        MoveBatch batch = new MoveBatch();
+        for (int i = 0; i < 40; i++) {
+          if (rand.nextInt(3) == 0) {
+            batch.move(directions[rand.nextInt(4)]);
+          }
+          else {
+            // now and then off the board, which is refused
+            batch.rotate(rand.nextInt(height + 1), rand.nextInt(width + 1) - (i % 7 == 0 ? 1 : 0));
+          }
+        }
+        t.checkExpect(batched.applyBatch(batch), this.applyOneByOne(single, batch));
+        t.checkExpect(batched.board.cells, single.board.cells);
+        t.checkExpect(batched.powerRow, single.powerRow);
+        t.checkExpect(batched.powerCol, single.powerCol);
+        t.checkExpect(batched.won, single.won);
+        t.checkExpect(this.currentPower(batched), this.referencePower(batched));
+      }
+    }
+
+    // an unscrambled board is won once a piece has turned back the way it was,
+    // and every move after that is refused
+    for (int seed = 0; seed < 10; seed++) {
+      LightEmAll batched = new LightEmAll(5, 5, new Board(5, 5, new Random(seed)));
+      LightEmAll single = new LightEmAll(5, 5, new Board(5, 5, new Random(seed)));
+      MoveBatch batch = new MoveBatch();
+      for (int i = 0; i < 4; i++) {
+        batch.rotate(2, 2);
+      }
+      batch.rotate(0, 0);
+      batch.move(IGrid.RIGHT);
+      batch.move(IGrid.BOTTOM);
+
+      t.checkExpect(batched.applyBatch(batch), this.applyOneByOne(single, batch));
+      t.checkExpect(batched.won, true);
+      t.checkExpect(batched.board.cells, single.board.cells);
+      t.checkExpect(batched.board.cells.connectors(0, 0),
+          new Board(5, 5, new Random(seed)).cells.connectors(0, 0));
+      t.checkExpect(batched.powerRow, single.powerRow);
+      t.checkExpect(batched.powerCol, single.powerCol);
+      t.checkExpect(batched.engine.poweredCount, 25);
+    }
+
+    // moving the station first works out the power of an unscrambled board,
+    // which wins it, so the rotation after the move is refused
+    for (int seed = 0; seed < 10; seed++) {
+      LightEmAll batched = new LightEmAll(5, 5, new Board(5, 5, new Random(seed)));
+      LightEmAll single = new LightEmAll(5, 5, new Board(5, 5, new Random(seed)));
+      MoveBatch batch = new MoveBatch();
+      batch.move(Integer.lowestOneBit(batched.board.cells.connectors(2, 2)));
+      batch.rotate(0, 0);
+
+      t.checkExpect(batched.applyBatch(batch), this.applyOneByOne(single, batch));
+      t.checkExpect(batched.won, true);
+      t.checkExpect(single.won, true);
+      t.checkExpect(batched.board.cells, single.board.cells);
+      t.checkExpect(batched.powerRow, single.powerRow);
+      t.checkExpect(batched.powerCol, single.powerCol);
+      t.checkExpect(batched.engine.poweredCount, 25);
+    }
+
+    // an empty batch only brings the power up to date
+    LightEmAll game = new LightEmAll(4, 3, new Random(2));
+    t.checkExpect(game.applyBatch(new MoveBatch()), this.applyOneByOne(
+        new LightEmAll(4, 3, new Random(2)), new MoveBatch()));
+
+    // a batch can be cleared and used again, and grows as it needs to
+    MoveBatch batch = new MoveBatch();
+    for (int i = 0; i < 100; i++) {
+      batch.rotate(0, 1);
+    }
+    t.checkExpect(batch.size, 100);
+    t.checkExpect(batch.kinds[99], MoveBatch.ROTATE);
+    batch.clear();
+    t.checkExpect(batch.size, 0);
+  }
+
+  // tests the commands of a GameSession, and a GameServer under a small load
+  void testGameServer(Tester t) {
+    GameSession session = new GameSession(null, null);
+    t.checkExpect(session.handle("STATE"), "ERROR No game");
+    t.checkExpect(session.handle("NEW 0 3 1"), "ERROR Bad size");
+    t.checkExpect(session.handle("NEW five 3 1"), "ERROR Not a number");
+    t.checkExpect(session.handle("NEW 5 4 7"), "OK 5 4");
+
+    // a session plays the same game a LightEmAll would from the seed
+    LightEmAll game = new LightEmAll(5, 4, new Random(7));
+    game.changePower();
+    t.checkExpect(session.engine.board.cells, game.board.cells);
+
+    Random rand = new Random(3);
+    String[] directions = { "up", "right", "down", "left" };
+    for (int i = 0; i < 60; i++) {
+      String reply;
+      boolean made;
+
+      if (rand.nextInt(3) == 0) {
+        int direction = rand.nextInt(4);
+        reply = session.handle("MOVE " + directions[direction]);
+        made = game.engine.movePower(1 << direction);
+      }
+      else {
+        int row = rand.nextInt(5);
+        int col = rand.nextInt(6);
+        reply = session.handle(" ROTATE  " + row + " " + col);
+        made = game.engine.rotate(row, col);
+      }
+      t.checkExpect(reply, made ? "OK " + game.engine.poweredCount + " " + game.engine.isWon()
+          : "NO");
+    }
+    t.checkExpect(session.engine.board.cells, game.board.cells);
+
+    String state = session.handle("STATE");
+    String header = "STATE 4 5 " + game.engine.powerRow + " " + game.engine.powerCol + " "
+        + game.engine.isWon() + " ";
+    t.checkExpect(state.startsWith(header), true);
+    t.checkExpect(state.length(), header.length() + 40);
+    t.checkExpect(Integer.parseInt(state.substring(state.length() - 2), 16),
+        game.board.cells.state(3, 4));
+
+    t.checkExpect(session.handle("MOVE sideways"), "ERROR Unknown direction sideways");
+    t.checkExpect(session.handle("ROTATE 1"), "ERROR Unknown command ROTATE 1");
+    t.checkExpect(session.handle("QUIT"), "BYE");
+
+    // every session of the load is open at once before any of them plays
+    try {
+      GameServer server = new GameServer(0);
+      server.start();
+      LoadGenerator load = new LoadGenerator(InetAddress.getLoopbackAddress().getHostAddress(),
+          server.port(), 50, 20, 8);
+      load.run();
+      t.checkExpect(load.failures.get(), 0L);
+      t.checkExpect(load.commands.get(), 50L * 23);
+      t.checkExpect(server.commands.get(), 50L * 23);
+      t.checkExpect(server.peakSessions.get(), 50);
+      server.close();
+    }
+    catch (IOException | InterruptedException e) {
+      t.checkExpect(e, null);
+    }
+
+    t.checkConstructorException(new IllegalArgumentException("Bad load"), "LoadGenerator",
+        "localhost", 7777, 0, 10, 8);
+  }
+
+  // tests keeping a DeltaMirror in sync with a game through the frames of a
+  // DeltaEncoder
+  void testDeltaSync(Tester t) {
+    for (int seed = 0; seed < 10; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(5 + rand.nextInt(60), 5 + rand.nextInt(60), rand);
+      game.changePower();
+      DeltaEncoder encoder = new DeltaEncoder(game.engine);
+      DeltaMirror mirror = new DeltaMirror(game.height, game.width);
+
+      mirror.apply(encoder.encode());
+      t.checkExpect(mirror.grid, game.board.cells);
+
+      for (int i = 0; i < 100 && !game.engine.isWon(); i++) {
+        if (rand.nextInt(4) == 0) {
+          game.engine.movePower(1 << rand.nextInt(4));
+        }
+        else {
+          game.engine.rotate(rand.nextInt(game.height), rand.nextInt(game.width));
+        }
+        int changed = game.engine.changed.size;
+        byte[] frame = encoder.encode();
+        mirror.apply(frame);
+
+        // a frame grows with the cells that changed, not with the board
+        t.checkExpect(frame.length <= 5 + 3 * changed, true);
+        t.checkExpect(mirror.grid, game.board.cells);
+        t.checkExpect(mirror.powerRow, game.engine.powerRow);
+        t.checkExpect(mirror.powerCol, game.engine.powerCol);
+        t.checkExpect(mirror.won, game.engine.isWon());
+      }
+
+      // a full recompute that changes nothing sends nothing but the counts
+      game.engine.changePower();
+      t.checkExpect(encoder.encode(), new byte[] { 0, 0, 0 });
+    }
+
+    // an unscrambled board is sent as won
+    GameEngine engine = new GameEngine(new Board(3, 4, new Random(1)));
+    engine.changePower();
+    engine.checkGameWon();
+    DeltaMirror mirror = new DeltaMirror(3, 4);
+    mirror.apply(new DeltaEncoder(engine).encode());
+    t.checkExpect(mirror.grid, engine.board.cells);
+    t.checkExpect(mirror.won, true);
+
+    // a GameSession sends the same frames in hex
+    GameSession session = new GameSession(null, null);
+    session.handle("NEW 9 7 4");
+    mirror = new DeltaMirror(7, 9);
+    for (int i = 0; i < 20; i++) {
+      session.handle("ROTATE " + (i % 7) + " " + (i % 9));
+      String reply = session.handle("SYNC");
+      byte[] frame = new byte[(reply.length() - 5) / 2];
+      for (int j = 0; j < frame.length; j++) {
+        frame[j] = (byte) Integer.parseInt(reply.substring(5 + 2 * j, 7 + 2 * j), 16);
+      }
+      mirror.apply(frame);
+    }
+    t.checkExpect(mirror.grid, session.engine.board.cells);
+
+    // varints of any size come back as they went
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int[] values = { 0, 1, 127, 128, 300, 1 << 21, Integer.MAX_VALUE };
+    DeltaEncoder.writeVarint(bytes, values.length);
+    for (int value : values) {
+      DeltaEncoder.writeVarint(bytes, value);
+    }
+    t.checkExpect(bytes.size(), 1 + 1 + 1 + 1 + 2 + 2 + 4 + 5);
+    mirror.frame = bytes.toByteArray();
+    mirror.position = 0;
+    t.checkExpect(mirror.readVarint(), values.length);
+    for (int value : values) {
+      t.checkExpect(mirror.readVarint(), value);
+    }
+    bytes.reset();
+    DeltaEncoder.writeVarint(bytes, (long) Integer.MAX_VALUE << 4 | 15);
+    t.checkExpect(bytes.size(), 5);
+    mirror.frame = bytes.toByteArray();
+    mirror.position = 0;
+    t.checkExpect(mirror.readVarint(35), (long) Integer.MAX_VALUE << 4 | 15);
+
+    // two changed tiles more than 2^28 cells apart, near either end of a blank
+    // board the client already has
+    int rows = (1 << 14) + 1;
+    int cols = 1 << 14;
+    GameEngine wide = new GameEngine(new Board(rows, cols, new PackedGrid(rows, cols)));
+    DeltaEncoder encoder = new DeltaEncoder(wide);
+    wide.changed.clear();
+    wide.board.cells.setConnectors(0, 1, IGrid.RIGHT);
+    wide.board.cells.setConnectors(rows - 1, cols - 1, IGrid.LEFT | IGrid.TOP);
+    wide.changed.add(1);
+    wide.changed.add(rows * cols - 1);
+    byte[] frame = encoder.encode();
+    t.checkExpect(frame.length, 10);
+    encoder = null;
+    wide = null;
+    mirror = new DeltaMirror(rows, cols);
+    mirror.apply(frame);
+    t.checkExpect(mirror.grid.connectors(0, 1), IGrid.RIGHT);
+    t.checkExpect(mirror.grid.connectors(rows - 1, cols - 1), IGrid.LEFT | IGrid.TOP);
+    t.checkExpect(mirror.grid.connectors(rows - 1, cols - 2), 0);
+
+    t.checkException(new IllegalArgumentException("Frame cut short"), new DeltaMirror(2, 2),
+        "apply", new byte[] { 2 });
+    t.checkException(new IllegalArgumentException("Frame too long"), new DeltaMirror(2, 2),
+        "apply", new byte[] { 0, 0, 0, 0 });
+  }
+
+  // tests the buckets and statistics of a Histogram
+  void testHistogram(Tester t) {
+    t.checkExpect(Histogram.bucket(-3), 0);
+    t.checkExpect(Histogram.bucket(15), 15);
+    t.checkExpect(Histogram.bucket(16), 16);
+    t.checkExpect(Histogram.bucket(17), 16);
+    t.checkExpect(Histogram.bucket(18), 17);
+    t.checkExpect(Histogram.highest(16), 17L);
+    t.checkExpect(Histogram.bucket(Long.MAX_VALUE), Histogram.BUCKETS - 1);
+    t.checkExpect(Histogram.highest(Histogram.BUCKETS - 1), Long.MAX_VALUE);
+
+    // every value falls in a bucket no wider than an eighth of it
+    Random rand = new Random(8);
+    for (int i = 0; i < 1000; i++) {
+      long value = rand.nextLong() >>> (1 + rand.nextInt(63));
+      int bucket = Histogram.bucket(value);
+      t.checkExpect(Histogram.highest(bucket) >= value, true);
+      t.checkExpect(bucket == 0 || Histogram.highest(bucket - 1) < value, true);
+      t.checkExpect(Histogram.highest(bucket) - value <= value / 8, true);
+    }
+
+    Histogram histogram = new Histogram("test", "ns");
+    t.checkExpect(histogram.percentile(0.5), 0L);
+    t.checkExpect(histogram.mean(), 0.0);
+    for (int value = 1; value <= 100; value++) {
+      histogram.record(value);
+    }
+    t.checkExpect(histogram.count.get(), 100L);
+    t.checkExpect(histogram.mean(), 50.5);
+    t.checkExpect(histogram.percentile(0.5), 51L);
+    t.checkExpect(histogram.percentile(0.99), 100L);
+    t.checkExpect(histogram.percentile(1.0), 100L);
+    histogram.reset();
+    t.checkExpect(histogram.count.get(), 0L);
+    t.checkExpect(histogram.max.get(), 0L);
+  }
+
+  // tests that Metrics record the hot paths of the game only while they are
+  // enabled, and publish them over JMX
+  void testMetrics(Tester t) {
+    boolean wasEnabled = Metrics.enabled;
+    LightEmAll game = new LightEmAll(6, 5, new Random(3));
+
+    Metrics.setEnabled(false);
+    Metrics.reset();
+    game.onMouseClicked(new Posn(20, 20), "LeftButton");
+    game.onKeyEvent("left");
+    game.makeScene();
+    for (Histogram histogram : Metrics.ALL) {
+      t.checkExpect(histogram.count.get(), 0L);
+    }
+
+    Metrics.setEnabled(true);
+    game.scene = null;
+    game.makeScene();
+    t.checkExpect(Metrics.MAKE_SCENE.count.get(), 1L);
+    t.checkExpect(Metrics.TILES_DRAWN.max.get(), 30L);
+    game.onMouseClicked(new Posn(20, 20), "LeftButton");
+    t.checkExpect(Metrics.MOUSE_CLICKED.count.get(), 1L);
+    t.checkExpect(Metrics.CHECK_GAME_WON.count.get(), 1L);
+    game.makeScene();
+    t.checkExpect(Metrics.TILES_DRAWN.count.get(), 2L);
+    game.onKeyEvent("w");
+    t.checkExpect(Metrics.KEY_EVENT.count.get(), 1L);
+    game.changePower();
+    t.checkExpect(Metrics.CHANGE_POWER.count.get(), 1L);
+    t.checkExpect(Metrics.CELLS_VISITED.max.get(), (long) game.engine.poweredCount);
+    t.checkExpect(Metrics.ALLOCATED.count.get(), 4L);
+    t.checkExpect(Metrics.dump().split("\n").length, 1 + Metrics.ALL.length);
+
+    try {
+      Metrics.install();
+      Metrics.install();
+      ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+      t.checkExpect(ManagementFactory.getPlatformMBeanServer().getAttribute(name,
+          "changePowerCount"), 1L);
+      ManagementFactory.getPlatformMBeanServer().setAttribute(name,
+          new Attribute("Enabled", false));
+      t.checkExpect(Metrics.enabled, false);
+      ManagementFactory.getPlatformMBeanServer().invoke(name, "reset", null, null);
+      t.checkExpect(Metrics.CHANGE_POWER.count.get(), 0L);
+      t.checkExpect(ManagementFactory.getPlatformMBeanServer().getMBeanInfo(name)
+          .getAttributes().length, 1 + Metrics.ALL.length * MetricsBean.STATISTICS.length);
+    }
+    catch (JMException e) {
+      t.checkExpect(e, null);
+    }
+
+    Metrics.reset();
+    Metrics.setEnabled(wasEnabled);
+  }
+
+  // the connectors of every cell of the given game, then the row and column
+  // of its power station
+  int[] layout(LightEmAll game) {
+    IGrid cells = game.board.cells;
+    int[] layout = new int[cells.rows() * cells.cols() + 2];
+
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        layout[row * cells.cols() + col] = cells.connectors(row, col);
+      }
+    }
+    layout[layout.length - 2] = game.engine.powerRow;
+    layout[layout.length - 1] = game.engine.powerCol;
+    return layout;
+  }
+
+  // tests undoing, redoing and jumping through an UndoHistory
+  void testUndoHistory(Tester t) {
+    for (int seed = 0; seed < 6; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(4 + rand.nextInt(30), 4 + rand.nextInt(30), rand);
+      game.changePower();
+      UndoHistory history = new UndoHistory(game.engine, Long.MAX_VALUE, 1 + seed * 5);
+      ArrayList<int[]> layouts = new ArrayList<>();
+      layouts.add(this.layout(game));
+
+      while (history.end() < 300 && !game.engine.isWon()) {
+        boolean made = rand.nextInt(3) == 0 ? history.move(1 << rand.nextInt(4))
+            : history.rotate(rand.nextInt(game.height), rand.nextInt(game.width));
+        if (made) {
+          layouts.add(this.layout(game));
+        }
+      }
+      t.checkExpect(history.position, (long) layouts.size() - 1);
+
+      for (int step = layouts.size() - 2; step >= 0; step--) {
+        t.checkExpect(history.undo(), true);
+        game.follow();
+        t.checkExpect(this.layout(game), layouts.get(step));
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+      }
+      t.checkExpect(history.undo(), false);
+      t.checkExpect(game.engine.isWon(), false);
+      t.checkExpect(history.redo(), true);
+      t.checkExpect(this.layout(game), layouts.get(1));
+
+      for (int i = 0; i < 20; i++) {
+        int step = rand.nextInt(layouts.size());
+        t.checkExpect(history.jumpTo(step), true);
+        t.checkExpect(history.position, (long) step);
+        game.follow();
+        t.checkExpect(this.layout(game), layouts.get(step));
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+      }
+      t.checkExpect(history.jumpTo(layouts.size()), false);
+
+      // a new step forgets the ones undone
+      history.jumpTo(10);
+      history.rotate(0, 0);
+      t.checkExpect(history.end(), 11L);
+      t.checkExpect(history.redo(), false);
+      t.checkExpect(history.checkpoints.get(history.checkpoints.size() - 1).step <= 11, true);
+    }
+
+    // a checkpoint only copies the chunks that changed since the last one
+    GameEngine engine = new GameEngine(new Board(100, 100, new Random(2)));
+    UndoHistory history = new UndoHistory(engine, Long.MAX_VALUE, 4);
+    for (int i = 0; i < 4; i++) {
+      history.rotate(0, i);
+    }
+    t.checkExpect(history.checkpoints.size(), 2);
+    Checkpoint before = history.checkpoints.get(0);
+    Checkpoint after = history.checkpoints.get(1);
+    t.checkExpect(after.chunks[0] == before.chunks[0], false);
+    t.checkExpect(after.chunks[1] == before.chunks[1], true);
+    t.checkExpect(after.chunks[2] == before.chunks[2], true);
+    t.checkExpect(history.chunkBytes, 10000L + UndoHistory.CHUNK_CELLS);
+
+    // over the budget the oldest steps are forgotten, a checkpoint at a time
+    history = new UndoHistory(engine, 30000, 4);
+    for (int i = 0; i < 100; i++) {
+      history.rotate(i % 100, i / 100);
+    }
+    t.checkExpect(history.base > 0, true);
+    t.checkExpect(history.base, history.checkpoints.get(0).step);
+    t.checkExpect(history.memory() <= 30000 || history.checkpoints.size() == 1, true);
+    t.checkExpect(history.jumpTo(0), false);
+    t.checkExpect(history.jumpTo(history.base), true);
+    t.checkExpect(history.undo(), false);
+
+    t.checkConstructorException(new IllegalArgumentException("A history needs a positive interval"),
+        "UndoHistory", engine, 100L, 0);
+  }
+
+  // tests undoing and redoing with z and y, and recording them in an
+  // EventLog
+  void testUndoKeys(Tester t) {
+    LightEmAll game = new LightEmAll(6, 5, 4L);
+    int[] start = this.layout(game);
+    game.onKeyEvent("z");
+    t.checkExpect(this.layout(game), start);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      EventLog log = game.record(bytes);
+      game.enableUndo(1 << 20);
+      game.onMouseClicked(new Posn(20, 20), "LeftButton");
+      game.onMouseClicked(new Posn(60, 20), "LeftButton");
+      int[] clicked = this.layout(game);
+      game.onKeyEvent("z");
+      game.onKeyEvent("z");
+      t.checkExpect(this.layout(game), start);
+      game.onKeyEvent("y");
+      game.onKeyEvent("y");
+      game.onKeyEvent("y");
+      t.checkExpect(this.layout(game), clicked);
+      game.onKeyEvent("z");
+
+      // the log holds rotations with the same effect, so a replay ends up the same
+      log.flush();
+      EventReplayer replayer = new EventReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+      GameEngine replayed = replayer.replay(Integer.MAX_VALUE);
+      t.checkExpect(replayed.board.cells, game.board.cells);
+      t.checkExpect(replayed.powerRow, game.powerRow);
+      t.checkExpect(replayed.powerCol, game.powerCol);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+  }
+
+  // tests recording a game in an EventLog and rebuilding it with an
+  // EventReplayer
+  void testEventLog(Tester t) {
+    Random rand = new Random(5);
+    LightEmAll game = new LightEmAll(8, 6, 21L);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try {
+      EventLog log = game.record(bytes);
+      for (int i = 0; i < 300 && !game.won; i++) {
+        if (rand.nextInt(4) == 0) {
+          game.onKeyEvent(new String[] { "up", "down", "left", "right" }[rand.nextInt(4)]);
+        }
+        else {
+          game.onMouseClicked(new Posn(rand.nextInt(8 * 39), rand.nextInt(6 * 39)), "LeftButton");
+        }
+      }
+      // other buttons change nothing and are not recorded
+      game.onMouseClicked(new Posn(0, 0), "RightButton");
+      log.flush();
+      byte[] recorded = bytes.toByteArray();
+      t.checkExpect(recorded.length, EventLog.HEADER_SIZE + EventLog.RECORD_SIZE * log.events);
+
+      EventReplayer replayer = new EventReplayer(new ByteArrayInputStream(recorded));
+      t.checkExpect(replayer.width, 8);
+      t.checkExpect(replayer.height, 6);
+      t.checkExpect(replayer.seed, 21L);
+      t.checkExpect(replayer.engine.board.cells, new LightEmAll(8, 6, new Random(21)).board.cells);
+      GameEngine engine = replayer.replay(Integer.MAX_VALUE);
+      t.checkExpect(replayer.events, log.events);
+      t.checkExpect(engine.board.cells, game.board.cells);
+      t.checkExpect(engine.powerRow, game.powerRow);
+      t.checkExpect(engine.powerCol, game.powerCol);
+      t.checkExpect(engine.won, game.won);
+      t.checkExpect(replayer.step(), false);
+
+      // a log cut off in the middle of a record stops before it
+      replayer = new EventReplayer(new ByteArrayInputStream(
+          Arrays.copyOf(recorded, recorded.length - 5)));
+      replayer.replay(Integer.MAX_VALUE);
+      t.checkExpect(replayer.events, log.events - 1);
+
+      // a game can be rebuilt as it was after any number of events
+      replayer = new EventReplayer(new ByteArrayInputStream(recorded));
+      replayer.replay(10);
+      t.checkExpect(replayer.events, 10);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    try {
+      new EventReplayer(new ByteArrayInputStream(new byte[32]));
+      t.checkExpect("no exception", "an exception");
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), "Not an event log");
+    }
+
+    // a game started without a seed picks its own, so it can be replayed too
+    LightEmAll played = new LightEmAll(7, 5);
+    t.checkExpect(played.seeded, true);
+    bytes = new ByteArrayOutputStream();
+    try {
+      EventLog log = played.record(bytes);
+      for (int i = 0; i < 40 && !played.won; i++) {
+        played.onMouseClicked(new Posn(rand.nextInt(7 * 39), rand.nextInt(5 * 39)), "LeftButton");
+      }
+      played.onKeyEvent("right");
+      log.flush();
+      EventReplayer replayer = new EventReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+      t.checkExpect(replayer.seed, played.seed);
+      GameEngine engine = replayer.replay(Integer.MAX_VALUE);
+      t.checkExpect(engine.board.cells, played.board.cells);
+      t.checkExpect(engine.powerRow, played.powerRow);
+      t.checkExpect(engine.powerCol, played.powerCol);
+      t.checkExpect(engine.won, played.won);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    // a game that has moved on from its seed would replay from the wrong board
+    LightEmAll moved = new LightEmAll(8, 6, 21L);
+    t.checkExpect(moved.atStart(), true);
+    moved.onMouseClicked(new Posn(20, 20), "LeftButton");
+    moved.onMouseClicked(new Posn(60, 20), "LeftButton");
+    t.checkExpect(moved.atStart(), false);
+    t.checkException(new IllegalStateException("Only a game that has not moved on can be recorded"),
+        moved, "record", new ByteArrayOutputStream());
+    t.checkExpect(moved.log, null);
+
+    // the seed of a Random passed in cannot be known, so the game cannot be
+    // recorded
+    t.checkException(new IllegalStateException("Only a game started from a seed can be recorded"),
+        new LightEmAll(7, 5, new Random(3)), "record", new ByteArrayOutputStream());
+  }
+
+  // tests the spreadRight and spreadLeft methods of the BitplaneEngine class
+  void testSpreadBits(Tester t) {
+    t.checkExpect(BitplaneEngine.spreadRight(1L, 0b0111L), 0b1111L);
+    t.checkExpect(BitplaneEngine.spreadRight(1L, 0b0110L), 1L);
+    t.checkExpect(BitplaneEngine.spreadRight(0b10L, -1L), -2L);
+    t.checkExpect(BitplaneEngine.spreadLeft(0b1000L, 0b0101L), 0b1100L);
+    t.checkExpect(BitplaneEngine.spreadLeft(Long.MIN_VALUE, -1L), -1L);
+    t.checkExpect(BitplaneEngine.spreadLeft(0L, -1L), 0L);
+  }
+
+  // tests that the BitplaneEngine powers the same cells as the original
+  // implementation, on rows of one word and of several
+  void testBitplaneEngine(Tester t) {
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(1 + rand.nextInt(150), 1 + rand.nextInt(30), rand);
+      game.engine = new BitplaneEngine(game.board);
+
+      for (int click = 0; click < 20; click++) {
+        game.board.cells.rotate(rand.nextInt(game.height), rand.nextInt(game.width));
+        game.changePower();
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+        t.checkExpect(game.engine.poweredCount, this.countPowered(this.referencePower(game)));
+      }
+
+      // rotations after a full recompute are still kept up to date
+      game.engine.rotatePiece(rand.nextInt(game.height), rand.nextInt(game.width));
+      t.checkExpect(this.currentPower(game), this.referencePower(game));
+    }
+
+    // a tree that winds back and forth across word boundaries is powered
+    // everywhere
+    Board tree = new Board(40, 130, new Random(9));
+    BitplaneEngine engine = new BitplaneEngine(tree);
+    engine.changePower();
+    t.checkExpect(engine.poweredCount, 5200);
+    t.checkExpect(engine.words, 3);
+
+    // the comb's rows are only joined through the power station's row
+    Board comb = new Board(5, 70);
+    engine = new BitplaneEngine(comb);
+    engine.changePower();
+    t.checkExpect(engine.poweredCount, 70);
+    t.checkExpect(engine.power[2 * 2 + 1], (1L << 6) - 1);
+  }
+
+  // tests that rotating through the game updates power the same way as a full
+  // recompute of the board
+  void testRotatePiece(Tester t) {
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      LightEmAll game = new LightEmAll(3 + rand.nextInt(12), 3 + rand.nextInt(12), rand);
+      game.changePower();
+
+      for (int click = 0; click < 100; click++) {
+        if (rand.nextInt(4) == 0) {
+          game.onKeyEvent(new String[] { "up", "down", "left", "right" }[rand.nextInt(4)]);
+        }
+        else {
+          game.engine.rotatePiece(rand.nextInt(game.height), rand.nextInt(game.width));
+        }
+        t.checkExpect(this.currentPower(game), this.referencePower(game));
+        t.checkExpect(game.engine.poweredCount,
+            this.countPowered(this.referencePower(game)));
+      }
+    }
+  }
+
+  // the number of powered cells in the given flags
+  int countPowered(boolean[][] powered) {
+    int count = 0;
+
+    for (boolean[] row : powered) {
+      for (boolean cell : row) {
+        count += cell ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  // tests the rotate, movePower, isPowered and isWon methods of the GameEngine
+  // class on a board of two cells
+  void testGameEngine(Tester t) {
+    GamePiece first = new GamePiece(0, 0, false, false, false, true);
+    GamePiece second = new GamePiece(0, 1, false, false, false, true);
+    Board board = new Board(1, 2, new ArrayList<ArrayList<GamePiece>>(
+        Arrays.asList(new ArrayList<GamePiece>(Arrays.asList(first, second)))));
+    first.powerStation = true;
+    GameEngine engine = new GameEngine(board);
+
+    t.checkExpect(engine.rotate(1, 0), false);
+    t.checkExpect(engine.rotate(0, -1), false);
+    t.checkExpect(engine.movePower(IGrid.RIGHT), false);
+
+    t.checkExpect(engine.rotate(0, 0), true);
+    t.checkExpect(engine.rotate(0, 0), true);
+    t.checkExpect(engine.rotate(0, 0), true);
+    t.checkExpect(first.right, true);
+    t.checkExpect(engine.isPowered(0, 0), true);
+    t.checkExpect(engine.isPowered(0, 1), false);
+    t.checkExpect(engine.isWon(), false);
+
+    t.checkExpect(engine.rotate(0, 1), true);
+    t.checkExpect(engine.isPowered(0, 1), true);
+    t.checkExpect(engine.isWon(), true);
+
+    // nothing moves once the game is won
+    t.checkExpect(engine.rotate(0, 1), false);
+    t.checkExpect(engine.movePower(IGrid.RIGHT), false);
+    engine.won = false;
+    t.checkExpect(engine.movePower(IGrid.TOP), false);
+    t.checkExpect(engine.movePower(IGrid.RIGHT), true);
+    t.checkExpect(engine.powerCol, 1);
+    t.checkExpect(second.powerStation, true);
+    t.checkExpect(first.powerStation, false);
+  }
+
+  // tests the Solver class
+  void testSolver(Tester t) {
+    // two dead ends that each turn once to face each other
+    GamePiece first = new GamePiece(0, 0, false, false, true, false);
+    GamePiece second = new GamePiece(0, 1, false, false, false, true);
+    Board pair = new Board(1, 2, new ArrayList<ArrayList<GamePiece>>(
+        Arrays.asList(new ArrayList<GamePiece>(Arrays.asList(first, second)))));
+    t.checkExpect(new Solver(pair).solve(), new int[] {1, 1});
+
+    // two dead ends cannot power a third cell
+    GamePiece lone = new GamePiece(0, 2, false, false, false, true);
+    Board stuck = new Board(1, 3, new ArrayList<ArrayList<GamePiece>>(Arrays.asList(
+        new ArrayList<GamePiece>(Arrays.asList(new GamePiece(0, 0, true, false, false, false),
+            new GamePiece(0, 1, true, false, false, false), lone)))));
+    t.checkExpect(new Solver(stuck).solve(), null);
+
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      Board board = new Board(1 + rand.nextInt(12), 1 + rand.nextInt(12), rand);
+      board.randomRotate(rand);
+      int[] turns = new Solver(board).solve();
+      Solver.apply(board, turns);
+      t.checkExpect(this.poweredGame(board).engine.countPowered(), board.rows * board.cols);
+    }
+
+    // four corners make a loop rather than a tree
+    Board ring = new Board(2, 2);
+    for (int cell = 0; cell < 4; cell++) {
+      ring.cells.setConnectors(cell / 2, cell % 2, IGrid.TOP | IGrid.RIGHT);
+    }
+    t.checkExpect(new Solver(ring).solve(), new int[] {1, 2, 0, 3});
+    Solver.apply(ring, new int[] {1, 2, 0, 3});
+    t.checkExpect(this.poweredGame(ring).engine.countPowered(), 4);
+
+    // the comb's crosses point off the board, so no assignment meets every connector
+    t.checkExpect(new Solver(new Board(6, 5)).solve(), null);
+
+    Board big = new Board(200, 200, new Random(13));
+    big.randomRotate(new Random(14));
+    Solver solver = new Solver(big);
+    int[] turns = solver.solve();
+    t.checkExpect(solver.guesses >= solver.maxDepth, true);
+    t.checkExpect(solver.backtracks <= solver.guesses, true);
+    Solver.apply(big, turns);
+    t.checkExpect(this.poweredGame(big).engine.countPowered(), 40000);
+  }
+
+  // tests the ParallelSolver class
+  void testParallelSolver(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(3);
+    ForkJoinPool one = new ForkJoinPool(1);
+
+    for (int seed = 0; seed < 20; seed++) {
+      Random rand = new Random(seed);
+      Board board = new Board(1 + rand.nextInt(30), 1 + rand.nextInt(30), rand);
+      board.randomRotate(rand);
+      // the answer is the same however many threads and rows each band gets
+      int[] turns = new ParallelSolver(board, pool, 1 + seed % 5).solve();
+      t.checkExpect(new ParallelSolver(board, one, 1 + seed % 5).solve(), turns);
+      Solver.apply(board, turns);
+      t.checkExpect(this.poweredGame(board).engine.countPowered(), board.rows * board.cols);
+    }
+
+    // a band of a single row still finds the loop in the ring
+    Board ring = new Board(2, 2);
+    for (int cell = 0; cell < 4; cell++) {
+      ring.cells.setConnectors(cell / 2, cell % 2, IGrid.TOP | IGrid.RIGHT);
+    }
+    ParallelSolver solver = new ParallelSolver(ring, pool, 1);
+    t.checkExpect(solver.solve(), new int[] {1, 2, 0, 3});
+    t.checkExpect(solver.bands.length, 2);
+
+    t.checkExpect(new ParallelSolver(new Board(6, 5), pool, 2).solve(), null);
+
+    Board big = new Board(200, 200, new Random(13));
+    big.randomRotate(new Random(14));
+    solver = new ParallelSolver(big, pool, 16);
+    int[] turns = solver.solve();
+    t.checkExpect(solver.rounds >= 1, true);
+    Solver.apply(big, turns);
+    t.checkExpect(this.poweredGame(big).engine.countPowered(), 40000);
+
+    t.checkConstructorException(new IllegalArgumentException("A band needs at least one row"),
+        "ParallelSolver", new Board(2, 2), pool, 0);
+    pool.shutdown();
+    one.shutdown();
+  }
+
+  // tests the DifficultyAnalyzer class
+  void testDifficultyAnalyzer(Tester t) {
+    // every tile of a single row is forced by the edges of the board
+    Difficulty line = DifficultyAnalyzer.analyze(5, 1, 3);
+    t.checkExpect(line.solved, true);
+    t.checkExpect(line.choices, 5);
+    t.checkExpect(line.forced, 5);
+    t.checkExpect(line.probed, 0);
+    t.checkExpect(line.guesses, 0);
+    t.checkExpect(line.branchDepth, 0);
+    t.checkExpect(line.stationDepth, 2);
+    t.checkExpect(line.diameter, 4);
+
+    Difficulty none = DifficultyAnalyzer.analyze(new Board(6, 5), 0);
+    t.checkExpect(none.solved, false);
+    t.checkExpect(none.diameter, 0);
+
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool three = new ForkJoinPool(3);
+    Difficulty[] results = DifficultyAnalyzer.analyzeAll(12, 9, 40, 30, three);
+    Difficulty[] alone = DifficultyAnalyzer.analyzeAll(12, 9, 40, 30, one);
+    one.shutdown();
+    three.shutdown();
+
+    for (int i = 0; i < results.length; i++) {
+      Difficulty difficulty = results[i];
+      // the results do not depend on the threads, apart from the time taken
+      t.checkExpect(difficulty.csv().replaceAll(",[^,]*$", ""),
+          alone[i].csv().replaceAll(",[^,]*$", ""));
+      t.checkExpect(difficulty.seed, 40L + i);
+      t.checkExpect(difficulty.solved, true);
+      t.checkExpect(difficulty.forced + difficulty.probed <= difficulty.choices, true);
+      t.checkExpect(difficulty.guesses >= difficulty.branchDepth, true);
+      t.checkExpect(difficulty.stationDepth <= difficulty.diameter, true);
+      t.checkExpect(2 * difficulty.stationDepth >= difficulty.diameter, true);
+
+      // the rotations it counts power the whole board
+      Board board = DifficultyAnalyzer.board(12, 9, 40 + i);
+      int[] turns = new Solver(board).solve();
+      int turned = 0;
+      for (int turn : turns) {
+        turned += turn;
+      }
+      t.checkExpect(difficulty.rotations, turned);
+      Solver.apply(board, turns);
+      t.checkExpect(this.poweredGame(board).engine.countPowered(), 108);
+    }
+
+    StringWriter out = new StringWriter();
+    try {
+      DifficultyAnalyzer.writeCsv(results, out);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+    String[] lines = out.toString().split("\n");
+    t.checkExpect(lines.length, 31);
+    t.checkExpect(lines[0], Difficulty.CSV_HEADER);
+    t.checkExpect(lines[1].startsWith("40,12,9,"), true);
+    t.checkExpect(lines[30].split(",").length, 14);
+
+    String message = "";
+    try {
+      DifficultyAnalyzer.analyzeAll(0, 9, 0, 3, ForkJoinPool.commonPool());
+    }
+    catch (IllegalArgumentException e) {
+      message = e.getMessage();
+    }
+    t.checkExpect(message, "Bad batch");
+  }
+
+  // tests the countPowered method in the GameEngine class
+  void testCountPowered(Tester t) {
+    this.initCond();
+
+    t.checkExpect(this.gameInitial.engine.countPowered(), 1);
+    t.checkExpect(this.gameInitial.engine.poweredCount, 1);
+    t.checkExpect(this.gamePowered.engine.countPowered(), 72);
+    t.checkExpect(this.gamePowered.engine.poweredCount, 72);
+    t.checkExpect(new LightEmAll(4, 3, new Random(2)).engine.poweredCount, 0);
+
+    this.gameInitial.onMouseClicked(new Posn(0, 41), "LeftButton");
+    t.checkExpect(this.gameInitial.engine.poweredCount, this.gameInitial.engine.countPowered());
+  }
+
+  // tests the touchesPower method in the GameEngine class
+  void testTouchesPower(Tester t) {
+    this.initCond();
+
+    this.gameInitial.changePower();
+    t.checkExpect(this.gameInitial.engine.touchesPower(1, 0), false);
+
+    this.gameInitial.board.cells.rotate(1, 0);
+    this.gameInitial.board.cells.rotate(1, 0);
+    this.gameInitial.board.cells.rotate(1, 0);
+    t.checkExpect(this.gameInitial.engine.touchesPower(1, 0), true);
+  }
+
+  // tests that turning a powered piece repairs only the cells it cuts off,
+  // leaving the same power and a tree of it that searching again would
+  void testRepairPower(Tester t) {
+    Random rand = new Random(5);
+    Board board = new Board(12, 12, rand);
+    board.randomRotate(rand);
+    GameEngine engine = new GameEngine(board);
+    engine.changePower();
+    int[] wires = new int[144];
+    int[] distances = new int[144];
+    boolean matches = true;
+
+    for (int i = 0; i < 3000; i++) {
+      if (rand.nextInt(4) == 0) {
+        engine.movePower(1 << rand.nextInt(4));
+      }
+      else {
+        engine.turnPiece(rand.nextInt(12), rand.nextInt(12), 1 + rand.nextInt(3));
+      }
+      for (int cell = 0; cell < 144; cell++) {
+        wires[cell] = board.cells.connectors(cell / 12, cell % 12);
+      }
+      int station = engine.powerRow * 12 + engine.powerCol;
+      DifficultyAnalyzer.farthest(wires, 12, station, distances);
+
+      matches = matches && engine.treeKnown && engine.parentOf(station) == 0
+          && engine.poweredCount == engine.countPowered();
+      for (int cell = 0; cell < 144; cell++) {
+        int parent = engine.isPowered(cell) ? engine.parentOf(cell) : 0;
+        matches = matches && engine.isPowered(cell) == distances[cell] >= 0
+            && (!engine.isPowered(cell) || engine.poweredCells[engine.positions.get(cell)] == cell)
+            && (parent == 0 || engine.isPowered(engine.connectedNeighbor(cell, parent)));
+      }
+    }
+    t.checkExpect(matches, true);
+
+    // a line of ten pieces powered from its left end: turning the ninth cuts
+    // off only the last two, and turning it back only powers them again
+    PackedGrid line = new PackedGrid(1, 10);
+    for (int col = 0; col < 10; col++) {
+      line.setConnectors(0, col, IGrid.LEFT | IGrid.RIGHT);
+    }
+    line.setPowerStation(0, 0, true);
+    GameEngine lineEngine = new GameEngine(new Board(1, 10, line));
+    lineEngine.changePower();
+    boolean wasEnabled = Metrics.enabled;
+    Metrics.setEnabled(true);
+    Metrics.reset();
+
+    lineEngine.turnPiece(0, 8, 1);
+    t.checkExpect(Metrics.CELLS_VISITED.max.get(), 2L);
+    t.checkExpect(lineEngine.poweredCount, 8);
+    t.checkExpect(lineEngine.countPowered(), 8);
+    t.checkExpect(lineEngine.isPowered(0, 7), true);
+    t.checkExpect(lineEngine.isPowered(0, 9), false);
+    lineEngine.turnPiece(0, 8, 1);
+    t.checkExpect(Metrics.CELLS_VISITED.max.get(), 2L);
+    t.checkExpect(lineEngine.poweredCount, 10);
+    t.checkExpect(lineEngine.parentOf(9), IGrid.LEFT);
+
+    // moving the station along the line turns the tree round
+    t.checkExpect(lineEngine.movePower(IGrid.RIGHT), true);
+    t.checkExpect(lineEngine.parentOf(1), 0);
+    t.checkExpect(lineEngine.parentOf(0), IGrid.RIGHT);
+    lineEngine.turnPiece(0, 0, 1);
+    t.checkExpect(lineEngine.isPowered(0, 0), false);
+    t.checkExpect(lineEngine.poweredCount, 9);
+    t.checkExpect(Metrics.CELLS_VISITED.max.get(), 2L);
+
+    Metrics.reset();
+    Metrics.setEnabled(wasEnabled);
+  }
+
+  // tests the connectedNeighbor method in the GameEngine class
+  void testConnectedNeighbor(Tester t) {
+    this.initCond();
+
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(0, IGrid.BOTTOM), -1);
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(0, IGrid.LEFT), -1);
+    // p1 (0, 1) has a left connector but p0 has no right connector
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(1, IGrid.LEFT), -1);
+    // p10 (1, 0) and p20 (2, 0) do not meet, p12 (1, 2) and p13 (1, 3) do
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(8, IGrid.BOTTOM), -1);
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(10, IGrid.RIGHT), 11);
+    t.checkExpect(this.gameInitial.engine.connectedNeighbor(11, IGrid.LEFT), 10);
+  }
+
   // creates the scene and displays the LightEmAll game
   void testBigBang(Tester t) {
     int boardWidth = 10;
     int boardHeight = 10;
     LightEmAll game = new LightEmAll(boardWidth, boardHeight);
 
-    int gameWidth = boardWidth * 39;
-    int gameHeight = boardHeight * 39;
+    int gameWidth = game.viewCols * 39;
+    int gameHeight = game.viewRows * 39;
 
     game.bigBang(gameWidth, gameHeight);
   }
@@ -0,0 +1,147 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+// represents a client that loads a GameServer with many sessions at once, each
+// on a thread of its own, and reports how fast the server answered. Run it as
+//   java LoadGenerator [host] [port] [sessions] [moves] [size]
+// Every session connects and starts a game first, and none plays until all of
+// them have, so that the server holds every session open at the same time.
+class LoadGenerator {
+  String host;
+  int port;
+  int sessions;
+  int moves;
+  int size;
+  // the sessions that have started their game, and those that have finished
+  CountDownLatch started;
+  CountDownLatch finished;
+  // the commands answered, the time spent waiting for them, the slowest answer
+  // and the sessions that went wrong
+  AtomicLong commands;
+  AtomicLong nanos;
+  AtomicLong slowest;
+  AtomicLong failures;
+
+  // the constructor
+  LoadGenerator(String host, int port, int sessions, int moves, int size) {
+    if (sessions < 1 || moves < 0 || size < 1) {
+      throw new IllegalArgumentException("Bad load");
+    }
+    this.host = host;
+    this.port = port;
+    this.sessions = sessions;
+    this.moves = moves;
+    this.size = size;
+    this.started = new CountDownLatch(sessions);
+    this.finished = new CountDownLatch(sessions);
+    this.commands = new AtomicLong();
+    this.nanos = new AtomicLong();
+    this.slowest = new AtomicLong();
+    this.failures = new AtomicLong();
+  }
+
+  // runs the load picked out by the given arguments
+  public static void main(String[] args) throws InterruptedException {
+    LoadGenerator load = new LoadGenerator(args.length > 0 ? args[0] : "localhost",
+        args.length > 1 ? Integer.parseInt(args[1]) : 7777,
+        args.length > 2 ? Integer.parseInt(args[2]) : 10000,
+        args.length > 3 ? Integer.parseInt(args[3]) : 100,
+        args.length > 4 ? Integer.parseInt(args[4]) : 16);
+    long start = System.nanoTime();
+    load.run();
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("%d sessions, %d commands in %.1f s: %.0f commands/s, mean %.1f us, "
+        + "slowest %.1f ms, %d failed%n", load.sessions, load.commands.get(), elapsed / 1e9,
+        load.commands.get() * 1e9 / elapsed, load.nanos.get() / 1e3 / load.commands.get(),
+        load.slowest.get() / 1e6, load.failures.get());
+  }
+
+  // EFFECT: plays every session and waits for all of them to finish
+  void run() throws InterruptedException {
+    ThreadFactory threads = GameServer.sessionThreads();
+
+    for (int i = 0; i < this.sessions; i++) {
+      int session = i;
+      threads.newThread(() -> this.play(session)).start();
+    }
+    this.finished.await();
+  }
+
+  // EFFECT: connects as the given session, starts a game, waits for the other
+  // sessions to start theirs and then plays random rotations and moves
+  void play(int session) {
+    Random rand = new Random(session);
+    boolean counted = false;
+
+    try (Socket socket = new Socket(this.host, this.port);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+            StandardCharsets.US_ASCII), GameSession.BUFFER_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+            StandardCharsets.US_ASCII), GameSession.BUFFER_SIZE)) {
+      socket.setTcpNoDelay(true);
+      this.expect(this.send(in, out, "NEW " + this.size + " " + this.size + " " + session), "OK");
+      this.started.countDown();
+      counted = true;
+      this.started.await();
+
+      String[] directions = { "up", "right", "down", "left" };
+      for (int move = 0; move < this.moves; move++) {
+        String command = rand.nextInt(4) == 0 ? "MOVE " + directions[rand.nextInt(4)]
+            : "ROTATE " + rand.nextInt(this.size) + " " + rand.nextInt(this.size);
+        this.expect(this.send(in, out, command), "OK", "NO");
+      }
+      this.expect(this.send(in, out, "STATE"), "STATE");
+      this.expect(this.send(in, out, "QUIT"), "BYE");
+    }
+    catch (IOException | InterruptedException e) {
+      this.failures.incrementAndGet();
+    }
+    finally {
+      if (!counted) {
+        this.started.countDown();
+      }
+      this.finished.countDown();
+    }
+  }
+
+  // EFFECT: sends the given command and waits for the reply, timing it
+  // returns the reply
+  String send(BufferedReader in, Writer out, String command) throws IOException {
+    long start = System.nanoTime();
+    out.write(command);
+    out.write('\n');
+    out.flush();
+    String reply = in.readLine();
+    long elapsed = System.nanoTime() - start;
+
+    this.commands.incrementAndGet();
+    this.nanos.addAndGet(elapsed);
+    this.slowest.accumulateAndGet(elapsed, Math::max);
+    if (reply == null) {
+      throw new IOException("Connection closed");
+    }
+    return reply;
+  }
+
+  // EFFECT: throws if the given reply does not start with one of the given
+  // words
+  void expect(String reply, String... words) throws IOException {
+    for (String word : words) {
+      if (reply.equals(word) || reply.startsWith(word + " ")) {
+        return;
+      }
+    }
+    throw new IOException("Unexpected reply " + reply);
+  }
+}
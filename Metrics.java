@@ -0,0 +1,142 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// represents the counters and histograms of the hot paths of the game, shared
+// by every game in the JVM
+//
+// Timing costs two reads of the clock and a handful of atomic adds, so it is
+// off unless the lightemall.metrics system property is true or it is switched
+// on through setEnabled or JMX. While it is off every probe comes down to
+// reading one volatile flag. The histograms are published through JMX by
+// install, which also starts a periodic text dump to System.out when the
+// lightemall.metrics.dump property gives its period in seconds.
+class Metrics {
+  static final String OBJECT_NAME = "LightEmAll:type=Metrics";
+
+  static volatile boolean enabled = Boolean.getBoolean("lightemall.metrics");
+
+  static final Histogram KEY_EVENT = new Histogram("onKeyEvent", "ns");
+  static final Histogram MOUSE_CLICKED = new Histogram("onMouseClicked", "ns");
+  static final Histogram CHANGE_POWER = new Histogram("changePower", "ns");
+  static final Histogram CHECK_GAME_WON = new Histogram("checkGameWon", "ns");
+  static final Histogram MAKE_SCENE = new Histogram("makeScene", "ns");
+  static final Histogram CELLS_VISITED = new Histogram("cellsVisited", "cells");
+  static final Histogram TILES_DRAWN = new Histogram("tilesDrawn", "tiles");
+  static final Histogram ALLOCATED = new Histogram("allocated", "bytes");
+  static final Histogram[] ALL = { KEY_EVENT, MOUSE_CLICKED, CHANGE_POWER, CHECK_GAME_WON,
+      MAKE_SCENE, CELLS_VISITED, TILES_DRAWN, ALLOCATED };
+
+  // the JVM's per-thread allocation counter, or null if it has none
+  static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+  // the periodic dump, or null if none is running
+  static ScheduledExecutorService dumper = null;
+
+  // the JVM's per-thread allocation counter, switched on, or null if it has none
+  static com.sun.management.ThreadMXBean allocationCounter() {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threads.isThreadAllocatedMemorySupported()) {
+      return null;
+    }
+    threads.setThreadAllocatedMemoryEnabled(true);
+    return threads;
+  }
+
+  // the time to measure from, or 0 if metrics are disabled
+  static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  // the bytes allocated by this thread so far, or 0 if metrics are disabled
+  // or the JVM cannot tell
+  static long allocated() {
+    return enabled && THREADS != null
+        ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+  }
+
+  // EFFECT: records an input event or frame that started at the given time,
+  // when this thread had allocated the given number of bytes, in the given
+  // histogram and the allocations
+  static void finish(Histogram latency, long start, long bytes) {
+    if (start != 0) {
+      latency.stop(start);
+      if (THREADS != null && bytes != 0) {
+        ALLOCATED.record(THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes);
+      }
+    }
+  }
+
+  // EFFECT: switches metrics on or off
+  static void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  // EFFECT: forgets every value recorded
+  static void reset() {
+    for (Histogram histogram : ALL) {
+      histogram.reset();
+    }
+  }
+
+  // a table of every histogram, a line each
+  static String dump() {
+    StringBuilder text = new StringBuilder(String.format("%-16s %10s %12s %10s %10s %10s %12s %s%n",
+        "metric", "count", "mean", "p50", "p99", "p999", "max", "unit"));
+
+    for (Histogram histogram : ALL) {
+      text.append(String.format("%-16s %10d %12.1f %10d %10d %10d %12d %s%n", histogram.name,
+          histogram.count.get(), histogram.mean(), histogram.percentile(0.5),
+          histogram.percentile(0.99), histogram.percentile(0.999), histogram.max.get(),
+          histogram.unit));
+    }
+    return text.toString();
+  }
+
+  // EFFECT: prints the dump to the given stream every given number of
+  // seconds, on a daemon thread, instead of any dump started before
+  static synchronized void startDump(PrintStream out, long seconds) {
+    stopDump();
+    dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    dumper.scheduleAtFixedRate(() -> out.print(dump()), seconds, seconds, TimeUnit.SECONDS);
+  }
+
+  // EFFECT: stops the periodic dump, if there is one
+  static synchronized void stopDump() {
+    if (dumper != null) {
+      dumper.shutdownNow();
+      dumper = null;
+    }
+  }
+
+  // EFFECT: registers the metrics with the platform MBean server, unless they
+  // already are, and starts the dump the system properties ask for
+  static synchronized void install() {
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), name);
+      }
+    }
+    catch (JMException e) {
+      throw new IllegalStateException("Cannot register the metrics", e);
+    }
+
+    long seconds = Long.getLong("lightemall.metrics.dump", 0);
+    if (seconds > 0) {
+      startDump(System.out, seconds);
+    }
+  }
+}
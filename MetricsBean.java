@@ -0,0 +1,123 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+// represents the Metrics as seen over JMX: an Enabled attribute that can be
+// set, Count, Mean, P50, P99 and Max attributes for each histogram, such as
+// changePowerP99, and reset and dump operations
+class MetricsBean implements DynamicMBean {
+  static final String[] STATISTICS = { "Count", "Mean", "P50", "P99", "Max" };
+
+  // the value of the attribute with the given name
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    if (attribute.equals("Enabled")) {
+      return Metrics.enabled;
+    }
+    for (Histogram histogram : Metrics.ALL) {
+      if (attribute.startsWith(histogram.name)) {
+        String statistic = attribute.substring(histogram.name.length());
+
+        if (statistic.equals("Count")) {
+          return histogram.count.get();
+        }
+        else if (statistic.equals("Mean")) {
+          return histogram.mean();
+        }
+        else if (statistic.equals("P50")) {
+          return histogram.percentile(0.5);
+        }
+        else if (statistic.equals("P99")) {
+          return histogram.percentile(0.99);
+        }
+        else if (statistic.equals("Max")) {
+          return histogram.max.get();
+        }
+      }
+    }
+    throw new AttributeNotFoundException(attribute);
+  }
+
+  // EFFECT: sets the given attribute, of which only Enabled can be set
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    if (!attribute.getName().equals("Enabled") || !(attribute.getValue() instanceof Boolean)) {
+      throw new AttributeNotFoundException(attribute.getName());
+    }
+    Metrics.setEnabled((Boolean) attribute.getValue());
+  }
+
+  // the values of the attributes with the given names that exist
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+
+    for (String attribute : attributes) {
+      try {
+        list.add(new Attribute(attribute, this.getAttribute(attribute)));
+      }
+      catch (AttributeNotFoundException e) {
+        // left out, as JMX expects
+      }
+    }
+    return list;
+  }
+
+  // EFFECT: sets the given attributes that can be set
+  // returns the ones that were
+  public AttributeList setAttributes(AttributeList attributes) {
+    AttributeList set = new AttributeList();
+
+    for (Attribute attribute : attributes.asList()) {
+      try {
+        this.setAttribute(attribute);
+        set.add(attribute);
+      }
+      catch (AttributeNotFoundException e) {
+        // left out, as JMX expects
+      }
+    }
+    return set;
+  }
+
+  // EFFECT: carries out the operation with the given name
+  // returns its result
+  public Object invoke(String action, Object[] params, String[] signature)
+      throws ReflectionException {
+    if (action.equals("reset")) {
+      Metrics.reset();
+      return null;
+    }
+    else if (action.equals("dump")) {
+      return Metrics.dump();
+    }
+    throw new ReflectionException(new NoSuchMethodException(action));
+  }
+
+  // the description of this bean's attributes and operations
+  public MBeanInfo getMBeanInfo() {
+    MBeanAttributeInfo[] attributes =
+        new MBeanAttributeInfo[1 + Metrics.ALL.length * STATISTICS.length];
+    attributes[0] = new MBeanAttributeInfo("Enabled", "boolean", "whether metrics are recorded",
+        true, true, true);
+
+    int i = 1;
+    for (Histogram histogram : Metrics.ALL) {
+      for (String statistic : STATISTICS) {
+        attributes[i++] = new MBeanAttributeInfo(histogram.name + statistic,
+            statistic.equals("Mean") ? "double" : "long",
+            statistic + " of " + histogram.name + " in " + histogram.unit, true, false, false);
+      }
+    }
+
+    MBeanOperationInfo[] operations = {
+        new MBeanOperationInfo("reset", "forgets every value recorded", null, "void",
+            MBeanOperationInfo.ACTION),
+        new MBeanOperationInfo("dump", "a table of every histogram", null, "java.lang.String",
+            MBeanOperationInfo.INFO) };
+    return new MBeanInfo(MetricsBean.class.getName(), "hot path metrics of LightEmAll",
+        attributes, null, operations, null);
+  }
+}
@@ -0,0 +1,52 @@
+import java.util.Arrays;
+
+// represents a list of rotations and power station moves to apply to a
+// GameEngine all at once, each as its kind and two ints (a rotation's row and
+// column or a move's direction and 0)
+class MoveBatch {
+  // the kinds of move
+  static final int ROTATE = 1;
+  static final int MOVE = 2;
+
+  int[] kinds;
+  int[] firsts;
+  int[] seconds;
+  int size;
+
+  // the constructor
+  MoveBatch() {
+    this.kinds = new int[16];
+    this.firsts = new int[16];
+    this.seconds = new int[16];
+    this.size = 0;
+  }
+
+  // EFFECT: adds a rotation of the cell at the given position to this batch
+  void rotate(int row, int col) {
+    this.add(ROTATE, row, col);
+  }
+
+  // EFFECT: adds a move of the power station in the given direction, one of
+  // IGrid.TOP, IGrid.RIGHT, IGrid.BOTTOM or IGrid.LEFT, to this batch
+  void move(int direction) {
+    this.add(MOVE, direction, 0);
+  }
+
+  // EFFECT: adds a move of the given kind to the end of this batch
+  void add(int kind, int first, int second) {
+    if (this.size == this.kinds.length) {
+      this.kinds = Arrays.copyOf(this.kinds, this.size * 2);
+      this.firsts = Arrays.copyOf(this.firsts, this.size * 2);
+      this.seconds = Arrays.copyOf(this.seconds, this.size * 2);
+    }
+    this.kinds[this.size] = kind;
+    this.firsts[this.size] = first;
+    this.seconds[this.size] = second;
+    this.size++;
+  }
+
+  // EFFECT: removes every move from this batch
+  void clear() {
+    this.size = 0;
+  }
+}
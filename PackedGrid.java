@@ -0,0 +1,182 @@
+import java.util.Random;
+
+// represents a grid that stores every cell in a single byte: the low four bits
+// are the connectors, followed by a power station bit and a powered bit
+class PackedGrid implements IGrid {
+  // the connectors of mask m after k clockwise rotations are at 4 * m + k
+  static final byte[] TURNS = turnTable();
+  // the step between the counters hashed for a seeded scramble, as in
+  // SplittableRandom
+  static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+  int rows;
+  int cols;
+  byte[] cells;
+
+  // the constructor
+  PackedGrid(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.cells = new byte[rows * cols];
+  }
+
+  // the table of every mask of connectors after zero to three clockwise
+  // rotations
+  static byte[] turnTable() {
+    byte[] turns = new byte[64];
+
+    for (int mask = 0; mask < 16; mask++) {
+      int turned = mask;
+      for (int k = 0; k < 4; k++) {
+        turns[(mask << 2) | k] = (byte) turned;
+        turned = ((turned << 1) | (turned >> 3)) & CONNECTORS;
+      }
+    }
+    return turns;
+  }
+
+  // the connectors in the given bitmask after one clockwise rotation
+  static int rotateMask(int mask) {
+    return TURNS[((mask & CONNECTORS) << 2) | 1];
+  }
+
+  // the connectors in the given bitmask after the given number of clockwise
+  // rotations, from 0 to 3
+  static int turn(int mask, int turns) {
+    return TURNS[((mask & CONNECTORS) << 2) | turns];
+  }
+
+  // the given value with its bits mixed so that every bit of the result
+  // depends on every bit of it, as SplittableRandom mixes its seeds
+  static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
+  // the number of clockwise rotations a seeded scramble gives the cell with
+  // the given index: every 32 cells share a hash of the seed and a counter,
+  // two bits each, so the answer only depends on the seed and the cell
+  static int turnsAt(long seed, long cell) {
+    return (int) (mix(mix(seed) + (cell >>> 5) * GAMMA) >>> ((cell & 31) << 1)) & 3;
+  }
+
+  // EFFECT: rotates the cells with indices from the first to just before the
+  // last by turnsAt the given seed, a hash for every 32 of them
+  void scramble(long seed, int from, int to) {
+    byte[] cells = this.cells;
+    byte[] turns = TURNS;
+    long base = mix(seed);
+    int i = from;
+
+    while (i < to) {
+      long bits = mix(base + (i >>> 5) * GAMMA) >>> ((i & 31) << 1);
+      int end = Math.min(to, ((i >>> 5) + 1) << 5);
+
+      for (; i < end; i++) {
+        int cell = cells[i];
+        int turned = turns[((cell & CONNECTORS) << 2) | (int) (bits & 3)];
+        cells[i] = (byte) ((cell & ~CONNECTORS) | turned);
+        bits >>>= 2;
+      }
+    }
+  }
+
+  // EFFECT: rotates every cell a random number of times, drawing one
+  // nextInt(4) from the given Random per cell in row-major order, as
+  // Board.randomRotate does, in a single pass over the cells
+  void scramble(Random rand) {
+    byte[] cells = this.cells;
+    byte[] turns = TURNS;
+
+    for (int i = 0; i < cells.length; i++) {
+      int cell = cells[i];
+      int turned = turns[((cell & CONNECTORS) << 2) | rand.nextInt(4)];
+      cells[i] = (byte) ((cell & ~CONNECTORS) | turned);
+    }
+  }
+
+  // the index of the cell at the given position
+  int index(int row, int col) {
+    return row * this.cols + col;
+  }
+
+  // EFFECT: sets or clears the given bit of the cell at the given position
+  void setBit(int row, int col, int bit, boolean value) {
+    int i = this.index(row, col);
+    this.cells[i] = (byte) (value ? this.cells[i] | bit : this.cells[i] & ~bit);
+  }
+
+  public int rows() {
+    return this.rows;
+  }
+
+  public int cols() {
+    return this.cols;
+  }
+
+  public int connectors(int row, int col) {
+    return this.cells[this.index(row, col)] & CONNECTORS;
+  }
+
+  public void setConnectors(int row, int col, int mask) {
+    int i = this.index(row, col);
+    this.cells[i] = (byte) ((this.cells[i] & ~CONNECTORS) | (mask & CONNECTORS));
+  }
+
+  public int state(int row, int col) {
+    return this.cells[this.index(row, col)];
+  }
+
+  public boolean isPowered(int row, int col) {
+    return (this.cells[this.index(row, col)] & POWERED) != 0;
+  }
+
+  public void setPowered(int row, int col, boolean powered) {
+    this.setBit(row, col, POWERED, powered);
+  }
+
+  public boolean isPowerStation(int row, int col) {
+    return (this.cells[this.index(row, col)] & STATION) != 0;
+  }
+
+  public void setPowerStation(int row, int col, boolean powerStation) {
+    this.setBit(row, col, STATION, powerStation);
+  }
+
+  public void rotate(int row, int col) {
+    int i = this.index(row, col);
+    int cell = this.cells[i];
+    this.cells[i] = (byte) ((cell & ~CONNECTORS) | TURNS[((cell & CONNECTORS) << 2) | 1]);
+  }
+
+  public boolean independentCells() {
+    return true;
+  }
+
+  public void clearPowered() {
+    for (int i = 0; i < this.cells.length; i++) {
+      this.cells[i] = (byte) (this.cells[i] & ~POWERED);
+    }
+  }
+
+  public long countPowered() {
+    long count = 0;
+
+    for (byte cell : this.cells) {
+      count += (cell & POWERED) >> 5;
+    }
+    return count;
+  }
+
+  // a new GamePiece copied from the cell at the given position; changes to it
+  // are not written back to this grid
+  public GamePiece pieceAt(int row, int col) {
+    int cell = this.cells[this.index(row, col)];
+    GamePiece piece = new GamePiece(row, col);
+    piece.setConnectors(cell);
+    piece.powerStation = (cell & STATION) != 0;
+    piece.powered = (cell & POWERED) != 0;
+    return piece;
+  }
+}
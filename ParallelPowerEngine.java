@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// represents a GameEngine that recomputes the powered region on a ForkJoinPool
+//
+// Rather than searching out from the power station, changePower labels every
+// group of connected cells on the board at once. Each strip of rows joins its
+// own connected cells in a DisjointSet on its own thread, the connections
+// between strips are joined on one thread, and each strip then powers its cells
+// that are in the same set as the power station. On a grid whose cells share
+// their powered flags, such as a MappedGrid, the strips only find the powered
+// cells and the flags are set afterwards on one thread. Rotations and moves of
+// the power station between full recomputes are handled as in a GameEngine.
+class ParallelPowerEngine extends GameEngine {
+  static final int STRIP_ROWS = 64;
+
+  ForkJoinPool pool;
+  int stripRows;
+  DisjointSet sets;
+  // the set of the power station while the strips are being powered
+  int stationSet;
+  // the powered cells each strip found, and how many of them
+  int[][] stripCells;
+  int[] stripCounts;
+
+  // the constructor
+  ParallelPowerEngine(Board board, ForkJoinPool pool, int stripRows) {
+    super(board);
+    if (stripRows < 1) {
+      throw new IllegalArgumentException("A strip needs at least one row");
+    }
+    this.pool = pool;
+    this.stripRows = stripRows;
+    this.sets = new DisjointSet(0);
+    this.stationSet = -1;
+    this.stripCells = new int[0][];
+    this.stripCounts = new int[0];
+  }
+
+  // the constructor for the common pool and strips of the default height
+  ParallelPowerEngine(Board board) {
+    this(board, ForkJoinPool.commonPool(), STRIP_ROWS);
+  }
+
+  // EFFECT: changes the power connections between GamePieces, labelling the
+  // strips of the board in parallel
+  void changePower() {
+    long start = Metrics.start();
+    IGrid cells = this.board.cells;
+    int rows = cells.rows();
+    int cols = cells.cols();
+    int strips = (rows + this.stripRows - 1) / this.stripRows;
+
+    if (this.sets.parent.length != rows * cols) {
+      this.sets = new DisjointSet(rows * cols);
+    }
+    if (this.stripCells.length != strips) {
+      this.stripCells = new int[strips][16];
+      this.stripCounts = new int[strips];
+    }
+
+    this.pool.invoke(new PowerStrips(this, 0, strips, false));
+
+    // join the strips where a cell connects to the one below it
+    for (int row = this.stripRows; row < rows; row += this.stripRows) {
+      for (int col = 0; col < cols; col++) {
+        if ((cells.connectors(row - 1, col) & IGrid.BOTTOM) != 0
+            && (cells.connectors(row, col) & IGrid.TOP) != 0) {
+          this.sets.union((row - 1) * cols + col, row * cols + col);
+        }
+      }
+    }
+
+    this.stationSet = this.sets.find(this.powerRow * cols + this.powerCol);
+    this.pool.invoke(new PowerStrips(this, 0, strips, true));
+
+    this.poweredCount = 0;
+    for (int strip = 0; strip < strips; strip++) {
+      int count = this.stripCounts[strip];
+      this.poweredCells = this.ensureCapacity(this.poweredCells, this.poweredCount + count);
+      System.arraycopy(this.stripCells[strip], 0, this.poweredCells, this.poweredCount, count);
+      this.poweredCount += count;
+    }
+    if (!cells.independentCells()) {
+      cells.clearPowered();
+      for (int i = 0; i < this.poweredCount; i++) {
+        cells.setPowered(this.poweredCells[i] / cols, this.poweredCells[i] % cols, true);
+      }
+    }
+    this.changed.addAll();
+    this.powerKnown = true;
+    // the strips are labelled without a search, so no cell knows which one
+    // powered it
+    this.treeKnown = false;
+    // every cell of the board is labelled
+    Metrics.CELLS_VISITED.add((long) rows * cols);
+    Metrics.CHANGE_POWER.stop(start);
+  }
+
+  // EFFECT: puts every cell of the given strip in a set of its own and joins
+  // the ones connected to each other within the strip
+  void label(int strip) {
+    IGrid cells = this.board.cells;
+    int cols = cells.cols();
+    int first = strip * this.stripRows;
+    int last = Math.min(cells.rows(), first + this.stripRows) - 1;
+
+    // a strip's sets only ever hold its own cells, so no other strip touches them
+    Arrays.fill(this.sets.parent, first * cols, (last + 1) * cols, -1);
+    for (int row = first; row <= last; row++) {
+      for (int col = 0; col < cols; col++) {
+        int mask = cells.connectors(row, col);
+        int cell = row * cols + col;
+
+        if ((mask & IGrid.RIGHT) != 0 && col < cols - 1
+            && (cells.connectors(row, col + 1) & IGrid.LEFT) != 0) {
+          this.sets.union(cell, cell + 1);
+        }
+        if ((mask & IGrid.BOTTOM) != 0 && row < last
+            && (cells.connectors(row + 1, col) & IGrid.TOP) != 0) {
+          this.sets.union(cell, cell + cols);
+        }
+      }
+    }
+  }
+
+  // EFFECT: powers the cells of the given strip that are in the same set as
+  // the power station and unpowers the rest, if the grid lets strips set
+  // their flags at once, remembering the powered ones
+  void power(int strip) {
+    IGrid cells = this.board.cells;
+    boolean writes = cells.independentCells();
+    int cols = cells.cols();
+    int first = strip * this.stripRows;
+    int last = Math.min(cells.rows(), first + this.stripRows) - 1;
+    int[] found = this.stripCells[strip];
+    int count = 0;
+
+    for (int row = first; row <= last; row++) {
+      for (int col = 0; col < cols; col++) {
+        int cell = row * cols + col;
+        boolean powered = this.root(cell) == this.stationSet;
+
+        if (writes && cells.isPowered(row, col) != powered) {
+          cells.setPowered(row, col, powered);
+        }
+        if (powered) {
+          found = this.ensureCapacity(found, count + 1);
+          found[count++] = cell;
+        }
+      }
+    }
+    this.stripCells[strip] = found;
+    this.stripCounts[strip] = count;
+  }
+
+  // the representative of the set holding the given cell, found without
+  // changing the sets so that every strip can look at them at once
+  int root(int cell) {
+    int[] parent = this.sets.parent;
+
+    while (parent[cell] >= 0) {
+      cell = parent[cell];
+    }
+    return cell;
+  }
+}
+
+// represents labelling or powering a range of strips of a ParallelPowerEngine,
+// split in half until each task has a single strip
+class PowerStrips extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  ParallelPowerEngine engine;
+  int from;
+  int to;
+  boolean powering;
+
+  // the constructor
+  PowerStrips(ParallelPowerEngine engine, int from, int to, boolean powering) {
+    this.engine = engine;
+    this.from = from;
+    this.to = to;
+    this.powering = powering;
+  }
+
+  // EFFECT: labels or powers every strip in the range
+  protected void compute() {
+    if (this.to - this.from == 1) {
+      if (this.powering) {
+        this.engine.power(this.from);
+      }
+      else {
+        this.engine.label(this.from);
+      }
+    }
+    else if (this.to - this.from > 1) {
+      int middle = (this.from + this.to) / 2;
+      invokeAll(new PowerStrips(this.engine, this.from, middle, this.powering),
+          new PowerStrips(this.engine, middle, this.to, this.powering));
+    }
+  }
+}
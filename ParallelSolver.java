@@ -0,0 +1,168 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// represents a Solver for very large boards that does its first constraint
+// propagation and probing on a ForkJoinPool, and the rest on one thread
+//
+// The board is cut into bands of rows. Each band propagates and probes its own
+// cells on its own thread, and only ever writes its own orientations and the
+// edges between its own cells. The edges between two bands are fixed between
+// rounds instead, on one thread, from what the bands on either side asked for;
+// the cells next to them are then queued for the next round. Once a round asks
+// for nothing new, the whole board's solver joins everything up, adds the
+// checks that need the whole board (loops and cells shut off) and searches
+// for whatever is left. The bands do not depend on the pool's parallelism, so
+// the answer does not either.
+//
+// Only the rounds of bands use the pool. Everything that needs the whole
+// board, above all the search, runs on the calling thread, and on many boards
+// it takes as long as the bands or longer, so more threads can only speed up a
+// solve so far: parallelNanos and sequentialNanos show how the time splits.
+class ParallelSolver {
+  static final int BAND_ROWS = 64;
+
+  Solver whole;
+  ForkJoinPool pool;
+  int bandRows;
+  Solver[] bands;
+  // how many rounds the bands took, and the time spent in them and after them
+  int rounds;
+  long parallelNanos;
+  long sequentialNanos;
+
+  // the constructor
+  ParallelSolver(Board board, ForkJoinPool pool, int bandRows) {
+    if (bandRows < 1) {
+      throw new IllegalArgumentException("A band needs at least one row");
+    }
+    this.whole = new Solver(board);
+    this.pool = pool;
+    this.bandRows = bandRows;
+  }
+
+  // the constructor for the common pool and bands of the default height
+  ParallelSolver(Board board) {
+    this(board, ForkJoinPool.commonPool(), BAND_ROWS);
+  }
+
+  // the number of clockwise turns to give each cell, in row-major order, for
+  // every cell to be powered, or null if there is no such assignment
+  int[] solve() {
+    long start = System.nanoTime();
+    Solver whole = this.whole;
+    whole.prepare();
+
+    int count = (whole.rows + this.bandRows - 1) / this.bandRows;
+    this.bands = new Solver[count];
+    for (int i = 0; i < count; i++) {
+      this.bands[i] = new Solver(whole, i * this.bandRows,
+          Math.min(whole.rows, (i + 1) * this.bandRows) - 1);
+    }
+
+    boolean fits = this.round(true);
+    this.rounds = 1;
+    while (fits && this.reconcile()) {
+      fits = this.round(false);
+      this.rounds++;
+    }
+
+    long middle = System.nanoTime();
+    this.parallelNanos = middle - start;
+    int[] turns = fits ? whole.finish() : null;
+    this.sequentialNanos = System.nanoTime() - middle;
+    return turns;
+  }
+
+  // EFFECT: runs a round of every band on the pool, the first one from every
+  // cell of the band
+  // returns false if some band found a contradiction
+  boolean round(boolean first) {
+    BandRound round = new BandRound(this.bands, 0, this.bands.length, first);
+
+    this.pool.invoke(round);
+    return round.fits;
+  }
+
+  // EFFECT: fixes the edges between bands that the bands asked for, queueing
+  // the cells on both sides of each for the next round
+  // returns whether another round is needed
+  boolean reconcile() {
+    Solver whole = this.whole;
+    boolean changed = false;
+
+    for (Solver band : this.bands) {
+      for (int i = 0; i < band.requestCount; i += 3) {
+        int cell = band.requests[i];
+        int direction = band.requests[i + 1];
+        byte state = (byte) band.requests[i + 2];
+        byte edge = whole.edge(cell, direction);
+
+        if (edge == Solver.UNKNOWN) {
+          int next = whole.neighbor(cell, direction);
+          whole.writeEdge(cell, direction, state);
+          this.wake(cell);
+          this.wake(next);
+          changed = true;
+        }
+        else if (edge != state) {
+          // propagating the band again finds the contradiction on its own
+          this.wake(cell);
+          changed = true;
+        }
+      }
+      band.requestCount = 0;
+    }
+    return changed;
+  }
+
+  // EFFECT: queues the given cell for propagation and probing in its band
+  void wake(int cell) {
+    Solver band = this.bands[cell / this.whole.cols / this.bandRows];
+
+    band.queue.add(cell);
+    band.around(cell);
+  }
+}
+
+// represents one round of propagating and probing a range of bands, split in
+// half until each task has a single band
+class BandRound extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  Solver[] bands;
+  int from;
+  int to;
+  boolean first;
+  boolean fits;
+
+  // the constructor
+  BandRound(Solver[] bands, int from, int to, boolean first) {
+    this.bands = bands;
+    this.from = from;
+    this.to = to;
+    this.first = first;
+    this.fits = true;
+  }
+
+  // EFFECT: propagates and probes every band in the range
+  protected void compute() {
+    if (this.to - this.from == 1) {
+      Solver band = this.bands[this.from];
+
+      if (this.first) {
+        for (int cell = band.firstRow * band.cols; cell < (band.lastRow + 1) * band.cols; cell++) {
+          band.queue.add(cell);
+          band.pending.add(cell);
+        }
+      }
+      this.fits = band.propagate() && band.probe();
+    }
+    else {
+      int middle = (this.from + this.to) / 2;
+      BandRound first = new BandRound(this.bands, this.from, middle, this.first);
+      BandRound second = new BandRound(this.bands, middle, this.to, this.first);
+      invokeAll(first, second);
+      this.fits = first.fits && second.fits;
+    }
+  }
+}
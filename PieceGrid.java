@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+
+// represents a grid that adapts the GamePieces of a Board built from a list
+class PieceGrid implements IGrid {
+  ArrayList<ArrayList<GamePiece>> pieces;
+
+  // the constructor
+  PieceGrid(ArrayList<ArrayList<GamePiece>> pieces) {
+    this.pieces = pieces;
+  }
+
+  public int rows() {
+    return this.pieces.size();
+  }
+
+  public int cols() {
+    return this.pieces.isEmpty() ? 0 : this.pieces.get(0).size();
+  }
+
+  public int connectors(int row, int col) {
+    return this.pieceAt(row, col).connectors();
+  }
+
+  public void setConnectors(int row, int col, int mask) {
+    this.pieceAt(row, col).setConnectors(mask);
+  }
+
+  public int state(int row, int col) {
+    return this.pieceAt(row, col).state();
+  }
+
+  public boolean isPowered(int row, int col) {
+    return this.pieceAt(row, col).powered;
+  }
+
+  public void setPowered(int row, int col, boolean powered) {
+    this.pieceAt(row, col).powered = powered;
+  }
+
+  public boolean isPowerStation(int row, int col) {
+    return this.pieceAt(row, col).powerStation;
+  }
+
+  public void setPowerStation(int row, int col, boolean powerStation) {
+    this.pieceAt(row, col).powerStation = powerStation;
+  }
+
+  public void rotate(int row, int col) {
+    this.pieceAt(row, col).rotate();
+  }
+
+  public boolean independentCells() {
+    return true;
+  }
+
+  public void clearPowered() {
+    for (ArrayList<GamePiece> row : this.pieces) {
+      for (GamePiece piece : row) {
+        piece.powered = false;
+      }
+    }
+  }
+
+  public long countPowered() {
+    long count = 0;
+
+    for (ArrayList<GamePiece> row : this.pieces) {
+      for (GamePiece piece : row) {
+        count += piece.powered ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  // the GamePiece itself, so changes to it are seen by this grid
+  public GamePiece pieceAt(int row, int col) {
+    return this.pieces.get(row).get(col);
+  }
+}
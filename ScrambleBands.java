@@ -0,0 +1,37 @@
+import java.util.concurrent.RecursiveAction;
+
+// represents scrambling a range of rows of a PackedGrid by a seed, split in
+// half until each task has a band of at most BAND_CELLS cells; every cell's
+// rotations only depend on the seed and its index, so how the rows are split
+// and which threads run them changes nothing
+class ScrambleBands extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+  static final int BAND_CELLS = 1 << 16;
+
+  PackedGrid grid;
+  long seed;
+  int from;
+  int to;
+
+  // the constructor
+  ScrambleBands(PackedGrid grid, long seed, int from, int to) {
+    this.grid = grid;
+    this.seed = seed;
+    this.from = from;
+    this.to = to;
+  }
+
+  // EFFECT: scrambles every row in the range
+  protected void compute() {
+    int cols = this.grid.cols();
+
+    if (this.to - this.from <= 1 || (long) (this.to - this.from) * cols <= BAND_CELLS) {
+      this.grid.scramble(this.seed, this.from * cols, this.to * cols);
+    }
+    else {
+      int middle = (this.from + this.to) / 2;
+      invokeAll(new ScrambleBands(this.grid, this.seed, this.from, middle),
+          new ScrambleBands(this.grid, this.seed, middle, this.to));
+    }
+  }
+}
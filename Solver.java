@@ -0,0 +1,926 @@
+import java.util.Arrays;
+
+// represents a solver that finds how many times to rotate each tile of a Board
+// clockwise so that every cell is powered from the power station
+//
+// Every cell keeps the set of its orientations that are still possible, and
+// every edge between two cells is unknown, open (both cells have a connector
+// there) or closed. Edges off the board are closed. Constraint propagation
+// narrows the orientations of a cell to those that agree with the known edges
+// around it and fixes the edges that all of them agree on. On a board whose
+// wires can only form a spanning tree, an edge that would close a loop is a
+// contradiction as well, and two dead ends can never face each other. A group
+// of cells that is shut off from the rest of the board is one too.
+//
+// When propagation runs out, the solver first rules out every orientation that
+// fails on its own (probing), then guesses an orientation for the undecided
+// cell closest to its last guess, undoing its changes from a trail when the
+// guess fails. A cell that no guess worked for is guessed again first, so that
+// backing up finds the guess it really depends on without trying every guess
+// in between again. The solver only looks for assignments where every
+// connector meets another one, which on a spanning tree board is the only way
+// to power every cell.
+//
+// A solver can also work on a band of rows of another solver's board, sharing
+// its orientations and edges. A band only propagates and probes: it leaves the
+// edges to the bands above and below it alone and asks for them to be fixed
+// instead, so that bands on different threads never write the same edge (see
+// ParallelSolver).
+class Solver {
+  static final byte UNKNOWN = 0;
+  static final byte OPEN = 1;
+  static final byte CLOSED = 2;
+
+  // trail entry kinds
+  static final int DOMAIN = 0;
+  static final int RIGHT_EDGE = 1;
+  static final int DOWN_EDGE = 2;
+  static final int PARENT = 3;
+  static final int SIZE = 4;
+  static final int FREE = 5;
+  static final int MEMBER = 6;
+
+  // how many cells a search for a group shut off looks at before giving up
+  static final int WALK_LIMIT = 1024;
+  // the largest set a probe looks through for edges that would close a loop
+  static final int PROBE_WALK = 32;
+
+  int rows;
+  int cols;
+  int powerRow;
+  int powerCol;
+  // the connectors of every cell as the board has them now
+  byte[] masks;
+  // for every cell, bit k is set if k clockwise turns is still possible
+  byte[] domains;
+  // the edge from every cell to its right and down neighbors
+  byte[] right;
+  byte[] down;
+  // whether the wires can only make a spanning tree
+  boolean tree;
+  // the union-find over open edges, kept without path compression so that it
+  // can be undone, with the number of cells in each set, the number of
+  // unknown edges around its cells and a ring through all of its cells
+  int[] parent;
+  int[] sizes;
+  int[] free;
+  int[] members;
+
+  // the rows this solver works on, and whether they are only a band of them
+  int firstRow;
+  int lastRow;
+  boolean band;
+  // the edges leaving the band that it wants fixed: cell, direction and state
+  int[] requests;
+  int requestCount;
+  // whether the changes being made are only a probe, to be undone again, and
+  // whether the probe should be as thorough as a guess
+  boolean trying;
+  boolean thorough;
+
+  // the changes to undo: what kind, where and the old value
+  int[] trailKind;
+  int[] trailIndex;
+  int[] trailOld;
+  int trailSize;
+  // the number of changes that may still be undone, nothing is recorded at 0
+  int level;
+
+  IntQueue queue;
+  // the cells whose orientations are worth probing again
+  CellSet pending;
+  // the cells reached by the walks so far, marked with the number of the walk
+  int[] seen;
+  int walks;
+  IntQueue walk;
+  IntQueue other;
+
+  // how deep the search went, how many guesses it made and how many of those
+  // were wrong
+  int maxDepth;
+  int guesses;
+  int backtracks;
+  // the cell guessed at last, which the next guess stays close to, and the
+  // cell no guess could be found for since, which is guessed first until one
+  // is found
+  int last;
+  int conflict;
+
+  // the constructor
+  Solver(Board board) {
+    IGrid cells = board.cells;
+    this.rows = cells.rows();
+    this.cols = cells.cols();
+    this.powerRow = board.powerRow;
+    this.powerCol = board.powerCol;
+
+    int size = this.rows * this.cols;
+    this.masks = new byte[size];
+    long ends = 0;
+
+    for (int row = 0; row < this.rows; row++) {
+      for (int col = 0; col < this.cols; col++) {
+        int mask = cells.connectors(row, col);
+        this.masks[row * this.cols + col] = (byte) mask;
+        ends += Integer.bitCount(mask);
+      }
+    }
+
+    this.tree = ends == 2L * (size - 1);
+    this.firstRow = 0;
+    this.lastRow = this.rows - 1;
+    this.band = false;
+    this.queue = new IntQueue(16);
+    this.pending = new CellSet();
+  }
+
+  // the constructor for a band of the given rows of the given solver's board
+  Solver(Solver whole, int firstRow, int lastRow) {
+    this.rows = whole.rows;
+    this.cols = whole.cols;
+    this.powerRow = whole.powerRow;
+    this.powerCol = whole.powerCol;
+    this.masks = whole.masks;
+    this.domains = whole.domains;
+    this.right = whole.right;
+    this.down = whole.down;
+    this.tree = whole.tree;
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+    this.band = true;
+    this.requests = new int[48];
+    this.requestCount = 0;
+    this.trailKind = new int[64];
+    this.trailIndex = new int[64];
+    this.trailOld = new int[64];
+    this.trailSize = 0;
+    this.level = 0;
+    this.queue = new IntQueue(16);
+    this.pending = new CellSet();
+  }
+
+  // the connectors of the given cell after the given number of clockwise turns
+  int oriented(int cell, int turns) {
+    return PackedGrid.turn(this.masks[cell], turns);
+  }
+
+  // the number of clockwise turns to give each cell, in row-major order, for
+  // every cell to be powered, or null if there is no such assignment
+  int[] solve() {
+    this.prepare();
+
+    for (int cell = 0; cell < this.domains.length; cell++) {
+      this.queue.add(cell);
+      this.pending.add(cell);
+    }
+    return this.finish();
+  }
+
+  // EFFECT: sets up every cell with all of its orientations and every edge
+  // as unknown, except the ones that are known before looking any further
+  void prepare() {
+    int size = this.rows * this.cols;
+    this.domains = new byte[size];
+    this.right = new byte[size];
+    this.down = new byte[size];
+    this.parent = new int[size];
+    this.sizes = new int[size];
+    this.free = new int[size];
+    this.members = new int[size];
+    this.seen = new int[size];
+    this.walks = 0;
+    this.walk = new IntQueue(16);
+    this.other = new IntQueue(16);
+    this.trailKind = new int[64];
+    this.trailIndex = new int[64];
+    this.trailOld = new int[64];
+    this.trailSize = 0;
+    this.level = 0;
+    this.maxDepth = 0;
+    this.guesses = 0;
+    this.backtracks = 0;
+    this.last = this.powerRow * this.cols + this.powerCol;
+    this.conflict = -1;
+    this.queue.clear();
+    this.pending.clear();
+
+    for (int cell = 0; cell < size; cell++) {
+      // only the orientations that look different are worth telling apart
+      int domain = 0;
+      for (int turns = 0; turns < 4; turns++) {
+        boolean repeat = false;
+
+        for (int earlier = 0; earlier < turns; earlier++) {
+          repeat |= (domain & (1 << earlier)) != 0
+              && this.oriented(cell, earlier) == this.oriented(cell, turns);
+        }
+        if (!repeat) {
+          domain |= 1 << turns;
+        }
+      }
+      this.domains[cell] = (byte) domain;
+    }
+
+    // in a tree of more than two cells, two dead ends never meet
+    if (this.tree && size > 2) {
+      for (int cell = 0; cell < size; cell++) {
+        if (Integer.bitCount(this.masks[cell]) == 1) {
+          if (cell % this.cols < this.cols - 1 && Integer.bitCount(this.masks[cell + 1]) == 1) {
+            this.right[cell] = CLOSED;
+          }
+          if (cell / this.cols < this.rows - 1
+              && Integer.bitCount(this.masks[cell + this.cols]) == 1) {
+            this.down[cell] = CLOSED;
+          }
+        }
+      }
+    }
+  }
+
+  // EFFECT: joins the cells along the edges fixed so far, propagates from the
+  // queued cells, probes the pending ones and searches for the rest
+  // returns the turns for every cell, or null if there are none
+  int[] finish() {
+    int size = this.rows * this.cols;
+
+    if (!this.join() || !this.propagate() || !this.search()) {
+      return null;
+    }
+
+    int[] turns = new int[size];
+    for (int cell = 0; cell < size; cell++) {
+      turns[cell] = Integer.numberOfTrailingZeros(this.domains[cell]);
+    }
+    return turns;
+  }
+
+  // EFFECT: starts every cell in a set of its own and joins the cells along
+  // the edges fixed so far
+  // returns false if those edges already close a loop on a tree board
+  boolean join() {
+    int size = this.rows * this.cols;
+
+    for (int cell = 0; cell < size; cell++) {
+      this.parent[cell] = cell;
+      this.sizes[cell] = 1;
+      this.free[cell] = 0;
+      this.members[cell] = cell;
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        if (this.edge(cell, direction) == UNKNOWN) {
+          this.free[cell]++;
+        }
+      }
+    }
+    for (int cell = 0; cell < size; cell++) {
+      if (cell % this.cols < this.cols - 1 && this.right[cell] == OPEN
+          && !this.union(cell, cell + 1) && this.tree
+          || cell + this.cols < size && this.down[cell] == OPEN
+          && !this.union(cell, cell + this.cols) && this.tree) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // EFFECT: rotates every cell of the given board by the given turns
+  static void apply(Board board, int[] turns) {
+    IGrid cells = board.cells;
+
+    for (int row = 0; row < cells.rows(); row++) {
+      for (int col = 0; col < cells.cols(); col++) {
+        for (int i = 0; i < turns[row * cells.cols() + col]; i++) {
+          cells.rotate(row, col);
+        }
+      }
+    }
+  }
+
+  // EFFECT: guesses orientations for the cells that propagation left open,
+  // keeping its guesses on a stack of its own rather than the call stack
+  // returns whether a guess led to every cell being powered
+  boolean search() {
+    // for every guess: the cell, the orientations not tried yet and the size
+    // of the trail before it
+    int[] cells = new int[16];
+    int[] left = new int[16];
+    int[] marks = new int[16];
+    int depth = 0;
+    boolean fits = this.probe() && this.connected(true);
+
+    while (true) {
+      if (fits) {
+        // propagation may have decided the cell that failed in the meantime
+        if (this.conflict >= 0 && Integer.bitCount(this.domains[this.conflict]) == 1) {
+          this.conflict = -1;
+        }
+        int best = this.conflict >= 0 ? this.conflict : this.nearest(this.last);
+
+        if (best < 0) {
+          if (this.connected(false)) {
+            return true;
+          }
+        }
+        else {
+          if (depth == cells.length) {
+            cells = Arrays.copyOf(cells, depth * 2);
+            left = Arrays.copyOf(left, depth * 2);
+            marks = Arrays.copyOf(marks, depth * 2);
+          }
+          cells[depth] = best;
+          left[depth] = this.domains[best];
+          marks[depth] = this.trailSize;
+          depth++;
+          this.maxDepth = Math.max(this.maxDepth, depth);
+        }
+      }
+
+      // try the next orientation of the newest guess that has one left
+      fits = false;
+      while (!fits) {
+        if (depth == 0) {
+          return false;
+        }
+        int top = depth - 1;
+        int mark = marks[top];
+
+        if (this.trailSize > mark) {
+          // a wrong guess can hide a deduction near what it changed. If probing
+          // there fails even without the guess, no other guess here can work
+          // either, and the mistake was made before it
+          this.backtracks++;
+          this.collect(mark);
+          this.undo(mark);
+          this.level = top;
+          this.thorough = true;
+          boolean sound = this.probe();
+          this.thorough = false;
+
+          if (!sound) {
+            this.fail(cells[top]);
+            this.undo(mark);
+            depth--;
+            continue;
+          }
+          marks[top] = this.trailSize;
+          left[top] &= this.domains[cells[top]];
+        }
+        if (left[top] == 0) {
+          this.fail(cells[top]);
+          depth--;
+          continue;
+        }
+
+        int turns = Integer.numberOfTrailingZeros(left[top]);
+        left[top] &= ~(1 << turns);
+        this.level = depth;
+        this.guesses++;
+        this.last = cells[top];
+        this.setDomain(cells[top], 1 << turns);
+        this.queue.clear();
+        this.queue.add(cells[top]);
+
+        if (this.propagate()) {
+          this.collect(mark);
+          fits = this.probe() && !this.shutSince(mark);
+        }
+        if (fits && cells[top] == this.conflict) {
+          this.conflict = -1;
+        }
+      }
+    }
+  }
+
+  // EFFECT: remembers the given cell as the one to guess first from now on,
+  // unless an earlier one is still remembered
+  void fail(int cell) {
+    if (this.conflict < 0) {
+      this.conflict = cell;
+    }
+  }
+
+  // the undecided cell closest to the given one, preferring fewer orientations
+  // at the same distance, or -1 if every cell is decided
+  int nearest(int cell) {
+    int row = cell / this.cols;
+    int col = cell % this.cols;
+    int reach = Math.max(Math.max(row, this.rows - 1 - row), Math.max(col, this.cols - 1 - col));
+
+    for (int distance = 0; distance <= reach; distance++) {
+      int best = -1;
+      int bestCount = 5;
+
+      for (int r = Math.max(0, row - distance); r <= Math.min(this.rows - 1, row + distance); r++) {
+        // the top and bottom of the ring hold every column, its sides only two
+        int step = r == row - distance || r == row + distance ? 1 : 2 * distance;
+
+        for (int c = col - distance; c <= col + distance; c += step) {
+          int count = c < 0 || c >= this.cols ? 0
+              : Integer.bitCount(this.domains[r * this.cols + c]);
+
+          if (count > 1 && count < bestCount) {
+            best = r * this.cols + c;
+            bestCount = count;
+          }
+        }
+      }
+      if (best >= 0) {
+        return best;
+      }
+    }
+    return -1;
+  }
+
+  // EFFECT: adds the cells around everything changed since the trail had the
+  // given size to the cells to probe
+  void collect(int mark) {
+    for (int i = mark; i < this.trailSize; i++) {
+      int kind = this.trailKind[i];
+      int cell = this.trailIndex[i];
+
+      if (kind <= DOWN_EDGE) {
+        this.around(cell);
+      }
+      if (kind == RIGHT_EDGE) {
+        this.around(cell + 1);
+      }
+      else if (kind == DOWN_EDGE) {
+        this.around(cell + this.cols);
+      }
+    }
+  }
+
+  // EFFECT: adds the given cell and its neighbors on this solver's rows to
+  // the cells to probe
+  void around(int cell) {
+    if (this.inside(cell)) {
+      this.pending.add(cell);
+    }
+    for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+      int next = this.neighbor(cell, direction);
+
+      if (next >= 0 && this.inside(next)) {
+        this.pending.add(next);
+      }
+    }
+  }
+
+  // is the given cell on this solver's rows?
+  boolean inside(int cell) {
+    int row = cell / this.cols;
+    return row >= this.firstRow && row <= this.lastRow;
+  }
+
+  // EFFECT: rules out every orientation of the cells to probe that fails by
+  // propagation alone, probing again around what that changes
+  // returns false if some cell has no orientation left
+  boolean probe() {
+    boolean changed = true;
+
+    while (changed) {
+      changed = false;
+      int count = this.pending.size;
+      int[] cells = Arrays.copyOf(this.pending.items, count);
+      this.pending.clear();
+
+      for (int i = 0; i < count; i++) {
+        int cell = cells[i];
+
+        for (int turns = 0; turns < 4 && Integer.bitCount(this.domains[cell]) > 1; turns++) {
+          if ((this.domains[cell] & (1 << turns)) != 0) {
+            int mark = this.trailSize;
+            this.level++;
+            this.setDomain(cell, 1 << turns);
+            this.queue.clear();
+            this.queue.add(cell);
+            this.trying = true;
+            boolean fits = this.propagate();
+            this.trying = false;
+            this.undo(mark);
+
+            if (!fits) {
+              changed = true;
+              this.setDomain(cell, this.domains[cell] & ~(1 << turns));
+              this.queue.clear();
+              this.queue.add(cell);
+              fits = this.propagate();
+              this.collect(mark);
+            }
+            this.level--;
+
+            // nothing below the first guess is ever undone
+            if (this.level == 0) {
+              this.trailSize = mark;
+            }
+            if (!fits) {
+              // probing the same cells again is how a search that backs up
+              // finds the guess that went wrong
+              for (int j = i; j < count; j++) {
+                this.pending.add(cells[j]);
+              }
+              return false;
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  // EFFECT: narrows orientations and fixes edges until nothing changes
+  // returns false if some cell has no orientation left or a loop was closed
+  boolean propagate() {
+    while (!this.queue.isEmpty()) {
+      int cell = this.queue.remove();
+
+      // in a tree, an edge between two cells already joined would close a loop
+      if (this.tree && !this.band) {
+        for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+          if (this.edge(cell, direction) == UNKNOWN
+              && this.find(cell) == this.find(this.neighbor(cell, direction))
+              && !this.setEdge(cell, direction, CLOSED)) {
+            return false;
+          }
+        }
+      }
+
+      int domain = this.domains[cell];
+      int allowed = 0;
+      int any = 0;
+      int all = IGrid.CONNECTORS;
+
+      for (int turns = 0; turns < 4; turns++) {
+        if ((domain & (1 << turns)) != 0) {
+          int mask = this.oriented(cell, turns);
+
+          if (this.fits(cell, mask)) {
+            allowed |= 1 << turns;
+            any |= mask;
+            all &= mask;
+          }
+        }
+      }
+
+      if (allowed == 0) {
+        return false;
+      }
+      if (allowed != domain) {
+        this.setDomain(cell, allowed);
+      }
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        if (this.edge(cell, direction) == UNKNOWN) {
+          if ((all & direction) != 0 && !this.setEdge(cell, direction, OPEN)) {
+            return false;
+          }
+          else if ((any & direction) == 0 && !this.setEdge(cell, direction, CLOSED)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  // do the given connectors of the given cell agree with its known edges?
+  boolean fits(int cell, int mask) {
+    for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+      byte edge = this.edge(cell, direction);
+
+      if (edge == OPEN && (mask & direction) == 0 || edge == CLOSED && (mask & direction) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // the neighbor of the given cell in the given direction, or -1 off the board
+  int neighbor(int cell, int direction) {
+    int row = cell / this.cols;
+    int col = cell % this.cols;
+
+    if (direction == IGrid.TOP) {
+      return row > 0 ? cell - this.cols : -1;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      return row < this.rows - 1 ? cell + this.cols : -1;
+    }
+    else if (direction == IGrid.LEFT) {
+      return col > 0 ? cell - 1 : -1;
+    }
+    else {
+      return col < this.cols - 1 ? cell + 1 : -1;
+    }
+  }
+
+  // the state of the edge on the given side of the given cell
+  byte edge(int cell, int direction) {
+    int next = this.neighbor(cell, direction);
+
+    if (next < 0) {
+      return CLOSED;
+    }
+    else if (direction == IGrid.TOP) {
+      return this.down[next];
+    }
+    else if (direction == IGrid.BOTTOM) {
+      return this.down[cell];
+    }
+    else if (direction == IGrid.LEFT) {
+      return this.right[next];
+    }
+    else {
+      return this.right[cell];
+    }
+  }
+
+  // EFFECT: sets the edge on the given side of the given cell, without
+  // remembering what it was
+  void writeEdge(int cell, int direction, byte state) {
+    if (direction == IGrid.TOP) {
+      this.down[cell - this.cols] = state;
+    }
+    else if (direction == IGrid.BOTTOM) {
+      this.down[cell] = state;
+    }
+    else if (direction == IGrid.LEFT) {
+      this.right[cell - 1] = state;
+    }
+    else {
+      this.right[cell] = state;
+    }
+  }
+
+  // EFFECT: fixes the edge on the given side of the given cell, queueing the
+  // neighbor across it, or asks for it to be fixed if it leaves this band
+  // returns false if opening it closes a loop in a tree or it shuts a group of
+  // cells off from the rest of the board
+  boolean setEdge(int cell, int direction, byte state) {
+    int next = this.neighbor(cell, direction);
+
+    if (!this.inside(next)) {
+      // what a probe finds is undone again, so there is nothing to ask for
+      if (!this.trying) {
+        this.request(cell, direction, state);
+      }
+      return true;
+    }
+
+    boolean vertical = direction == IGrid.TOP || direction == IGrid.BOTTOM;
+    int owner = direction == IGrid.TOP || direction == IGrid.LEFT ? next : cell;
+    this.record(vertical ? DOWN_EDGE : RIGHT_EDGE, owner,
+        vertical ? this.down[owner] : this.right[owner]);
+    this.writeEdge(cell, direction, state);
+    this.queue.add(next);
+
+    if (this.band) {
+      return true;
+    }
+
+    int a = this.find(cell);
+    this.setValue(FREE, a, this.free[a] - 1);
+    int b = this.find(next);
+    this.setValue(FREE, b, this.free[b] - 1);
+
+    if (state == OPEN && !this.union(a, b) && this.tree) {
+      return false;
+    }
+    return !this.shut(this.find(cell)) && !this.shut(this.find(next));
+  }
+
+  // EFFECT: remembers that the edge on the given side of the given cell,
+  // which leaves this band, should have the given state
+  void request(int cell, int direction, byte state) {
+    if (this.requestCount + 3 > this.requests.length) {
+      this.requests = Arrays.copyOf(this.requests, this.requests.length * 2);
+    }
+    this.requests[this.requestCount++] = cell;
+    this.requests[this.requestCount++] = direction;
+    this.requests[this.requestCount++] = state;
+  }
+
+  // is the set with the given root cut off from every other cell?
+  boolean shut(int root) {
+    return this.free[root] == 0 && this.sizes[root] < this.domains.length;
+  }
+
+  // does an edge closed since the trail had the given size shut a group of
+  // cells off from the rest of the board?
+  boolean shutSince(int mark) {
+    for (int i = mark; i < this.trailSize; i++) {
+      int kind = this.trailKind[i];
+      int cell = this.trailIndex[i];
+
+      int next = kind == RIGHT_EDGE ? cell + 1 : cell + this.cols;
+      byte edge = kind == RIGHT_EDGE ? this.right[cell] : this.down[cell];
+
+      // cells joined by open edges can never be split
+      if ((kind == RIGHT_EDGE || kind == DOWN_EDGE) && edge == CLOSED
+          && this.find(cell) != this.find(next) && this.splits(cell, next)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // are the two given cells cut off from each other by closed edges? Walks out
+  // from both at once, a cell at a time, so that it stops as soon as the two
+  // walks meet or the smaller side runs out of cells, and gives up, answering
+  // no, after WALK_LIMIT cells.
+  boolean splits(int first, int second) {
+    int mine = ++this.walks;
+    int theirs = ++this.walks;
+    this.walk.clear();
+    this.other.clear();
+    this.walk.add(first);
+    this.other.add(second);
+    this.seen[first] = mine;
+    this.seen[second] = theirs;
+
+    for (int steps = 0; steps < WALK_LIMIT; steps++) {
+      if (this.walk.isEmpty()) {
+        return true;
+      }
+      int cell = this.walk.remove();
+
+      for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+        int next = this.neighbor(cell, direction);
+
+        if (next >= 0 && this.seen[next] != mine && this.edge(cell, direction) != CLOSED) {
+          if (this.seen[next] == theirs) {
+            return false;
+          }
+          this.seen[next] = mine;
+          this.walk.add(next);
+        }
+      }
+
+      // take a step from the other side
+      IntQueue queue = this.walk;
+      this.walk = this.other;
+      this.other = queue;
+      int marker = mine;
+      mine = theirs;
+      theirs = marker;
+    }
+    return false;
+  }
+
+  // EFFECT: narrows the orientations of the given cell
+  void setDomain(int cell, int domain) {
+    this.record(DOMAIN, cell, this.domains[cell]);
+    this.domains[cell] = (byte) domain;
+  }
+
+  // the root of the set of cells joined by open edges that holds the given cell
+  int find(int cell) {
+    while (this.parent[cell] != cell) {
+      cell = this.parent[cell];
+    }
+    return cell;
+  }
+
+  // EFFECT: joins the sets of the two given cells, queueing the cells of the
+  // smaller set that now have an unknown edge into the same set, which would
+  // close a loop
+  // returns false if they were already joined
+  boolean union(int first, int second) {
+    int a = this.find(first);
+    int b = this.find(second);
+
+    if (a == b) {
+      return false;
+    }
+    if (this.sizes[a] < this.sizes[b]) {
+      int temp = a;
+      a = b;
+      b = temp;
+    }
+    // a probe is undone again straight away, so it only looks at small sets
+    // unless it is after a wrong guess
+    if (!this.trying || this.thorough || this.sizes[b] <= PROBE_WALK) {
+      int cell = b;
+      do {
+        for (int direction = IGrid.TOP; direction <= IGrid.LEFT; direction <<= 1) {
+          if (this.edge(cell, direction) == UNKNOWN
+              && this.find(this.neighbor(cell, direction)) == a) {
+            this.queue.add(cell);
+          }
+        }
+        cell = this.members[cell];
+      } while (cell != b);
+    }
+
+    // swapping the next cells of two rings joins them into one
+    int next = this.members[a];
+    this.setValue(MEMBER, a, this.members[b]);
+    this.setValue(MEMBER, b, next);
+    this.setValue(PARENT, b, a);
+    this.setValue(SIZE, a, this.sizes[a] + this.sizes[b]);
+    this.setValue(FREE, a, this.free[a] + this.free[b]);
+    return true;
+  }
+
+  // EFFECT: changes a value of the union-find, remembering the old one
+  void setValue(int kind, int index, int value) {
+    int[] values = kind == PARENT ? this.parent
+        : kind == SIZE ? this.sizes
+        : kind == FREE ? this.free
+        : this.members;
+
+    this.record(kind, index, values[index]);
+    values[index] = value;
+  }
+
+  // EFFECT: remembers the old value of something about to change, unless
+  // nothing could ever undo it
+  void record(int kind, int index, int old) {
+    if (this.level == 0) {
+      return;
+    }
+    if (this.trailSize == this.trailKind.length) {
+      this.trailKind = Arrays.copyOf(this.trailKind, this.trailSize * 2);
+      this.trailIndex = Arrays.copyOf(this.trailIndex, this.trailSize * 2);
+      this.trailOld = Arrays.copyOf(this.trailOld, this.trailSize * 2);
+    }
+    this.trailKind[this.trailSize] = kind;
+    this.trailIndex[this.trailSize] = index;
+    this.trailOld[this.trailSize] = old;
+    this.trailSize++;
+  }
+
+  // EFFECT: undoes every change made since the trail had the given size
+  void undo(int mark) {
+    while (this.trailSize > mark) {
+      this.trailSize--;
+      int kind = this.trailKind[this.trailSize];
+      int index = this.trailIndex[this.trailSize];
+      int old = this.trailOld[this.trailSize];
+
+      if (kind == DOMAIN) {
+        this.domains[index] = (byte) old;
+      }
+      else if (kind == RIGHT_EDGE) {
+        this.right[index] = (byte) old;
+      }
+      else if (kind == DOWN_EDGE) {
+        this.down[index] = (byte) old;
+      }
+      else if (kind == PARENT) {
+        this.parent[index] = old;
+      }
+      else if (kind == SIZE) {
+        this.sizes[index] = old;
+      }
+      else if (kind == FREE) {
+        this.free[index] = old;
+      }
+      else {
+        this.members[index] = old;
+      }
+    }
+  }
+
+  // does every cell reach the power station through open edges, or also
+  // through the edges that are still unknown if the given flag is set?
+  boolean connected(boolean unknown) {
+    int size = this.rows * this.cols;
+    int station = this.powerRow * this.cols + this.powerCol;
+    int count = 1;
+
+    this.walks++;
+    this.walk.clear();
+    this.walk.add(station);
+    this.seen[station] = this.walks;
+
+    while (!this.walk.isEmpty()) {
+      int cell = this.walk.remove();
+      int col = cell % this.cols;
+
+      if (cell >= this.cols) {
+        count += this.visit(cell - this.cols, this.down[cell - this.cols], unknown);
+      }
+      if (cell + this.cols < size) {
+        count += this.visit(cell + this.cols, this.down[cell], unknown);
+      }
+      if (col > 0) {
+        count += this.visit(cell - 1, this.right[cell - 1], unknown);
+      }
+      if (col < this.cols - 1) {
+        count += this.visit(cell + 1, this.right[cell], unknown);
+      }
+    }
+    return count == size;
+  }
+
+  // EFFECT: queues the given cell on the walk if the given edge leads to it
+  // and the walk has not reached it yet
+  // returns the number of cells queued
+  int visit(int cell, byte edge, boolean unknown) {
+    if (this.seen[cell] == this.walks || edge == CLOSED || edge == UNKNOWN && !unknown) {
+      return 0;
+    }
+    this.seen[cell] = this.walks;
+    this.walk.add(cell);
+    return 1;
+  }
+}
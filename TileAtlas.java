@@ -0,0 +1,48 @@
+import javalib.worldimages.*;
+import java.awt.Color;
+
+// represents the images of every possible cell, drawn once and then shared
+class TileAtlas {
+  static final WorldImage[] TILES = new WorldImage[64];
+
+  // the image of a cell with the given state, drawing it the first time it is
+  // asked for
+  static WorldImage tile(int state) {
+    WorldImage tile = TILES[state];
+
+    if (tile == null) {
+      tile = draw(state);
+      TILES[state] = tile;
+    }
+    return tile;
+  }
+
+  // draws a cell with the given state
+  static WorldImage draw(int state) {
+    int size = 39;
+    WorldImage base = new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY);
+    Color lineColor = (state & IGrid.POWERED) != 0 ? Color.YELLOW : Color.LIGHT_GRAY;
+    WorldImage upBorder = (state & IGrid.TOP) != 0 ? new LineImage(new Posn(0, -size), lineColor)
+        : new EmptyImage();
+    WorldImage downBorder = (state & IGrid.BOTTOM) != 0
+        ? new LineImage(new Posn(0, size), lineColor)
+        : new EmptyImage();
+    WorldImage leftBorder = (state & IGrid.LEFT) != 0
+        ? new LineImage(new Posn(-size, 0), lineColor)
+        : new EmptyImage();
+    WorldImage rightBorder = (state & IGrid.RIGHT) != 0
+        ? new LineImage(new Posn(size, 0), lineColor)
+        : new EmptyImage();
+    WorldImage pieceImage = new OverlayImage(upBorder, new OverlayImage(downBorder,
+        new OverlayImage(leftBorder, new OverlayImage(rightBorder, base))));
+
+    if ((state & IGrid.STATION) != 0) {
+      WorldImage star = new StarImage(size / 2.5, OutlineMode.SOLID, Color.ORANGE);
+      pieceImage = new OverlayImage(star, pieceImage);
+    }
+
+    WorldImage border = new RectangleImage(size, size, OutlineMode.OUTLINE, Color.BLACK);
+    pieceImage = new OverlayImage(border, pieceImage);
+    return pieceImage;
+  }
+}
@@ -0,0 +1,298 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// represents the rotations and power station moves made on a GameEngine, so
+// that they can be undone and redone
+//
+// Each step is kept as a single int: the index of the rotated cell, or minus
+// the direction the station moved in. Undoing or redoing one step only
+// touches that cell or the station. Every interval steps the history also
+// takes a Checkpoint of the board, copying only the chunks of cells that
+// changed since the one before, so that jumping far back or ahead costs the
+// chunks that differ and at most an interval of steps. Once the steps and
+// chunks take more than the budget, the oldest checkpoint and the steps
+// before the next one are forgotten. Every rotation and move of the engine
+// should go through this history while it is in use.
+class UndoHistory {
+  static final int CHUNK_CELLS = 1 << 12;
+  static final int INTERVAL = 1024;
+
+  GameEngine engine;
+  long budget;
+  int interval;
+  // the steps kept, from index first on, and how many there are
+  int[] steps;
+  int first;
+  int count;
+  // the number of steps forgotten, and the number of steps made and not undone
+  long base;
+  long position;
+  ArrayList<Checkpoint> checkpoints;
+  // for each chunk of the board, the checkpoint chunk it is the same as, or
+  // null if it may have changed since
+  byte[][] current;
+  // the bytes of every distinct chunk the checkpoints hold
+  long chunkBytes;
+
+  // the constructor, taking the first checkpoint of the engine's board as it
+  // is now
+  UndoHistory(GameEngine engine, long budget, int interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("A history needs a positive interval");
+    }
+    IGrid cells = engine.board.cells;
+    this.engine = engine;
+    this.budget = budget;
+    this.interval = interval;
+    this.steps = new int[64];
+    this.first = 0;
+    this.count = 0;
+    this.base = 0;
+    this.position = 0;
+    this.checkpoints = new ArrayList<>();
+    this.current = new byte[(int) (((long) cells.rows() * cells.cols() + CHUNK_CELLS - 1)
+        / CHUNK_CELLS)][];
+    this.chunkBytes = 0;
+    this.checkpoint();
+  }
+
+  // the constructor for checkpoints at the default interval
+  UndoHistory(GameEngine engine, long budget) {
+    this(engine, budget, INTERVAL);
+  }
+
+  // the number of steps made, counting the forgotten ones and any undone ones
+  // that can be redone
+  long end() {
+    return this.base + this.count;
+  }
+
+  // an estimate of the bytes this history holds on to
+  long memory() {
+    return 4L * this.steps.length + this.chunkBytes
+        + 8L * this.current.length * (this.checkpoints.size() + 1);
+  }
+
+  // the given step, made before the given number of steps were: the index of
+  // a rotated cell or minus the direction the station moved in
+  int stepAt(long step) {
+    return this.steps[this.first + (int) (step - this.base)];
+  }
+
+  // EFFECT: rotates the piece at the given position through the engine,
+  // recording the rotation if it was made
+  // returns whether it was made
+  boolean rotate(int row, int col) {
+    if (!this.engine.rotate(row, col)) {
+      return false;
+    }
+    int cell = row * this.engine.board.cells.cols() + col;
+    this.touch(cell);
+    this.record(cell);
+    return true;
+  }
+
+  // EFFECT: moves the power station through the engine, recording the move
+  // if it was made
+  // returns whether it was made
+  boolean move(int direction) {
+    if (!this.engine.movePower(direction)) {
+      return false;
+    }
+    this.record(-direction);
+    return true;
+  }
+
+  // EFFECT: undoes the last step that is not undone yet
+  // returns whether there was one
+  boolean undo() {
+    if (this.position == this.base) {
+      return false;
+    }
+    this.position--;
+    this.apply(this.stepAt(this.position), false);
+    // a step is only made in a game that is not over yet
+    this.engine.won = false;
+    return true;
+  }
+
+  // EFFECT: redoes the last step undone
+  // returns whether there was one
+  boolean redo() {
+    if (this.position == this.end()) {
+      return false;
+    }
+    this.apply(this.stepAt(this.position), true);
+    this.position++;
+    this.engine.checkGameWon();
+    return true;
+  }
+
+  // EFFECT: undoes or redoes steps until the given number of them are made,
+  // starting from the nearest checkpoint at or before it when that is closer
+  // returns whether that many steps are still known
+  boolean jumpTo(long step) {
+    if (step < this.base || step > this.end()) {
+      return false;
+    }
+    if (Math.abs(step - this.position) > this.interval) {
+      Checkpoint nearest = this.checkpoints.get(0);
+      for (Checkpoint checkpoint : this.checkpoints) {
+        if (checkpoint.step <= step) {
+          nearest = checkpoint;
+        }
+      }
+      this.restore(nearest);
+    }
+    while (this.position > step) {
+      this.undo();
+    }
+    while (this.position < step) {
+      this.redo();
+    }
+    return true;
+  }
+
+  // EFFECT: makes the given step forwards or backwards on the engine
+  void apply(int step, boolean forwards) {
+    IGrid cells = this.engine.board.cells;
+    int cols = cells.cols();
+
+    if (step >= 0) {
+      this.engine.turnPiece(step / cols, step % cols, forwards ? 1 : 3);
+      this.touch(step);
+    }
+    else {
+      int sign = forwards ? 1 : -1;
+      int row = this.engine.powerRow;
+      int col = this.engine.powerCol;
+
+      if (-step == IGrid.TOP || -step == IGrid.BOTTOM) {
+        row += -step == IGrid.BOTTOM ? sign : -sign;
+      }
+      else {
+        col += -step == IGrid.RIGHT ? sign : -sign;
+      }
+      // the station moved along a connection, so its powered region is the same
+      this.engine.moveStation(row, col);
+    }
+  }
+
+  // EFFECT: marks the chunk holding the cell with the given index as changed
+  void touch(int cell) {
+    this.current[cell / CHUNK_CELLS] = null;
+  }
+
+  // EFFECT: adds the given step after the current one, forgetting any undone
+  // steps, and takes a checkpoint every interval steps
+  void record(int step) {
+    while (this.checkpoints.get(this.checkpoints.size() - 1).step > this.position) {
+      this.drop(this.checkpoints.size() - 1);
+    }
+    this.count = (int) (this.position - this.base);
+
+    if (this.first + this.count == this.steps.length) {
+      if (this.first > this.steps.length / 2) {
+        System.arraycopy(this.steps, this.first, this.steps, 0, this.count);
+        this.first = 0;
+      }
+      else {
+        this.steps = Arrays.copyOf(this.steps, this.steps.length * 2);
+      }
+    }
+    this.steps[this.first + this.count++] = step;
+    this.position++;
+
+    if (this.position - this.checkpoints.get(this.checkpoints.size() - 1).step >= this.interval) {
+      this.checkpoint();
+    }
+    this.trim();
+  }
+
+  // EFFECT: takes a checkpoint of the board as it is now, copying the chunks
+  // that changed since the last one
+  void checkpoint() {
+    IGrid cells = this.engine.board.cells;
+    int cols = cells.cols();
+    int size = cells.rows() * cols;
+    byte[][] chunks = new byte[this.current.length][];
+
+    for (int chunk = 0; chunk < chunks.length; chunk++) {
+      if (this.current[chunk] == null) {
+        int start = chunk * CHUNK_CELLS;
+        byte[] copy = new byte[Math.min(CHUNK_CELLS, size - start)];
+
+        for (int i = 0; i < copy.length; i++) {
+          copy[i] = (byte) cells.connectors((start + i) / cols, (start + i) % cols);
+        }
+        this.current[chunk] = copy;
+        this.chunkBytes += copy.length;
+      }
+      chunks[chunk] = this.current[chunk];
+    }
+    this.checkpoints.add(new Checkpoint(this.position, this.engine.powerRow,
+        this.engine.powerCol, chunks));
+  }
+
+  // EFFECT: puts the board back as it was at the given checkpoint, writing
+  // only the chunks that differ from it
+  void restore(Checkpoint checkpoint) {
+    IGrid cells = this.engine.board.cells;
+    int cols = cells.cols();
+
+    for (int chunk = 0; chunk < this.current.length; chunk++) {
+      if (this.current[chunk] != checkpoint.chunks[chunk]) {
+        byte[] saved = checkpoint.chunks[chunk];
+        int start = chunk * CHUNK_CELLS;
+
+        for (int i = 0; i < saved.length; i++) {
+          cells.setConnectors((start + i) / cols, (start + i) % cols, saved[i]);
+        }
+        this.current[chunk] = saved;
+      }
+    }
+    this.engine.moveStation(checkpoint.powerRow, checkpoint.powerCol);
+    this.engine.won = false;
+    this.engine.changePower();
+    this.engine.checkGameWon();
+    this.position = checkpoint.step;
+  }
+
+  // EFFECT: forgets the oldest checkpoint and the steps before the next one
+  // while this history is over its budget, keeping the checkpoint at or
+  // before the current step
+  void trim() {
+    while (this.memory() > this.budget && this.checkpoints.size() > 1
+        && this.checkpoints.get(1).step <= this.position) {
+      this.drop(0);
+      long forgotten = this.checkpoints.get(0).step - this.base;
+      this.first += (int) forgotten;
+      this.count -= (int) forgotten;
+      this.base += forgotten;
+
+      if (this.steps.length > 64 && this.count < this.steps.length / 4) {
+        this.steps = Arrays.copyOfRange(this.steps, this.first, this.first + this.steps.length / 2);
+        this.first = 0;
+      }
+    }
+  }
+
+  // EFFECT: removes the checkpoint at the given index, freeing the chunks no
+  // checkpoint next to it shares
+  void drop(int index) {
+    Checkpoint dropped = this.checkpoints.remove(index);
+
+    for (int chunk = 0; chunk < this.current.length; chunk++) {
+      byte[] saved = dropped.chunks[chunk];
+      boolean shared = index > 0 && this.checkpoints.get(index - 1).chunks[chunk] == saved
+          || index < this.checkpoints.size() && this.checkpoints.get(index).chunks[chunk] == saved;
+
+      if (!shared) {
+        this.chunkBytes -= saved.length;
+        if (this.current[chunk] == saved) {
+          this.current[chunk] = null;
+        }
+      }
+    }
+  }
+}